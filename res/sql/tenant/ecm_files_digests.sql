@@ -0,0 +1,4 @@
+-- Content digests of the stored files, computed while writing them
+-- (NodeDAO, IndexerDAO, TxDAO and ExtractedTextCache read and write them).
+-- Idempotent: run it on the existing tenant schemas as well.
+alter table ecm_files add column if not exists digests jsonb;
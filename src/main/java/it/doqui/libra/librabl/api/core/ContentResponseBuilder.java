@@ -0,0 +1,257 @@
+package it.doqui.libra.librabl.api.core;
+
+import it.doqui.libra.librabl.business.service.node.NodeAttachment;
+import it.doqui.libra.librabl.utils.IOUtils;
+import jakarta.ws.rs.core.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.utils.DateUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Builds file download responses honoring conditional requests (ETag, Last-Modified)
+// and byte ranges (RFC 9110). Contents are streamed from the file without buffering.
+@Slf4j
+public class ContentResponseBuilder {
+
+    private static final int MAX_RANGES = 32;
+    private static final String CRLF = "\r\n";
+
+    private final File file;
+    private String mimeType = MediaType.APPLICATION_OCTET_STREAM;
+    private String disposition;
+    private EntityTag entityTag;
+
+    private ContentResponseBuilder(File file) {
+        this.file = file;
+    }
+
+    public static ContentResponseBuilder of(File file) {
+        return new ContentResponseBuilder(file);
+    }
+
+    public static ContentResponseBuilder of(NodeAttachment a, boolean inline) {
+        var cp = a.getContentProperty();
+        return of(a.getFile())
+            .type(IOUtils.mimeType(cp.getMimetype()))
+            .disposition(a.formatDisposition(inline))
+            .entityTag(entityTag(cp.getContentUrl(), a.getFile().length()));
+    }
+
+    // Content urls are never rewritten, so url and size identify the bytes.
+    // Content-addressed urls already embed the content hash.
+    public static EntityTag entityTag(String contentUrl, long size) {
+        var name = StringUtils.substringAfterLast(contentUrl, "/");
+        if (StringUtils.contains(contentUrl, "://cas/") && StringUtils.endsWith(name, ".bin")) {
+            return new EntityTag(StringUtils.removeEnd(name, ".bin"));
+        }
+
+        var seed = String.format("%s|%d", StringUtils.stripToEmpty(contentUrl), size);
+        return new EntityTag(UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString().replace("-", ""));
+    }
+
+    public ContentResponseBuilder type(String mimeType) {
+        this.mimeType = mimeType;
+        return this;
+    }
+
+    public ContentResponseBuilder disposition(String disposition) {
+        this.disposition = disposition;
+        return this;
+    }
+
+    public ContentResponseBuilder entityTag(EntityTag entityTag) {
+        this.entityTag = entityTag;
+        return this;
+    }
+
+    public Response build(Request request, HttpHeaders headers) {
+        final long length = file.length();
+        final var lastModified = new Date(file.lastModified() / 1000 * 1000);
+        final var tag = entityTag != null ? entityTag : entityTag(file.getAbsolutePath(), length);
+
+        if (request != null) {
+            var rb = request.evaluatePreconditions(lastModified, tag);
+            if (rb != null) {
+                // 304 Not Modified or 412 Precondition Failed
+                return decorate(rb, tag, lastModified).build();
+            }
+        }
+
+        var rangeHeader = headers == null ? null : headers.getHeaderString("Range");
+        if (StringUtils.isBlank(rangeHeader) || !isRangeApplicable(headers.getHeaderString("If-Range"), tag, lastModified)) {
+            return full(tag, lastModified);
+        }
+
+        var ranges = parseRanges(rangeHeader, length);
+        if (ranges == null) {
+            // malformed or unsupported range unit: ignore the header
+            return full(tag, lastModified);
+        } else if (ranges.isEmpty()) {
+            return decorate(Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE), tag, lastModified)
+                .header("Content-Range", "bytes */" + length)
+                .build();
+        }
+
+        final var path = file.toPath();
+        if (ranges.size() == 1) {
+            var r = ranges.get(0);
+            log.debug("Returning range {}-{} of {}", r.start(), r.end(), path);
+            return decorate(Response.status(Response.Status.PARTIAL_CONTENT), tag, lastModified)
+                .entity((StreamingOutput) os -> IOUtils.transfer(path, r.start(), r.length(), os))
+                .type(mimeType)
+                .header("Content-Range", r.format(length))
+                .header(HttpHeaders.CONTENT_LENGTH, r.length())
+                .build();
+        }
+
+        final var boundary = UUID.randomUUID().toString().replace("-", "");
+        final var partHeaders = ranges.stream()
+            .map(r -> (CRLF + "--" + boundary + CRLF
+                + HttpHeaders.CONTENT_TYPE + ": " + mimeType + CRLF
+                + "Content-Range: " + r.format(length) + CRLF + CRLF).getBytes(StandardCharsets.US_ASCII))
+            .toList();
+        final var trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        long contentLength = trailer.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            contentLength += partHeaders.get(i).length + ranges.get(i).length();
+        }
+
+        log.debug("Returning {} ranges of {}", ranges.size(), path);
+        return decorate(Response.status(Response.Status.PARTIAL_CONTENT), tag, lastModified)
+            .entity((StreamingOutput) os -> {
+                for (int i = 0; i < ranges.size(); i++) {
+                    var r = ranges.get(i);
+                    os.write(partHeaders.get(i));
+                    IOUtils.transfer(path, r.start(), r.length(), os);
+                }
+                os.write(trailer);
+                os.flush();
+            })
+            .type("multipart/byteranges; boundary=" + boundary)
+            .header(HttpHeaders.CONTENT_LENGTH, contentLength)
+            .build();
+    }
+
+    private Response full(EntityTag tag, Date lastModified) {
+        final var path = file.toPath();
+        return decorate(Response.ok((StreamingOutput) os -> IOUtils.transfer(path, os)), tag, lastModified)
+            .type(mimeType)
+            .header(HttpHeaders.CONTENT_LENGTH, file.length())
+            .build();
+    }
+
+    private Response.ResponseBuilder decorate(Response.ResponseBuilder rb, EntityTag tag, Date lastModified) {
+        rb.tag(tag)
+            .lastModified(lastModified)
+            .header("Accept-Ranges", "bytes");
+        if (StringUtils.isNotBlank(disposition)) {
+            rb.header("Content-Disposition", disposition);
+        }
+
+        return rb;
+    }
+
+    private static boolean isRangeApplicable(String ifRange, EntityTag tag, Date lastModified) {
+        if (StringUtils.isBlank(ifRange)) {
+            return true;
+        }
+
+        var value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            // If-Range requires a strong comparison
+            return !value.startsWith("W/") && StringUtils.equals(value, "\"" + tag.getValue() + "\"");
+        }
+
+        var date = DateUtils.parseDate(value);
+        return date != null && date.getTime() == lastModified.getTime();
+    }
+
+    // Returns null when the header must be ignored, an empty list when no range is satisfiable
+    static List<ByteRange> parseRanges(String header, long length) {
+        var value = header.trim();
+        if (!StringUtils.startsWithIgnoreCase(value, "bytes=")) {
+            return null;
+        }
+
+        var ranges = new ArrayList<ByteRange>();
+        for (var spec : value.substring(6).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            try {
+                var first = spec.substring(0, dash).trim();
+                var last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // suffix range: last N bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+                    if (end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+
+                if (start < length && start <= end) {
+                    ranges.add(new ByteRange(start, end));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        if (ranges.size() > MAX_RANGES) {
+            // too many ranges are a denial of service vector: serve the whole content instead
+            return null;
+        }
+
+        return coalesce(ranges);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+
+        var sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(ByteRange::start));
+        var result = new ArrayList<ByteRange>();
+        var current = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            var r = sorted.get(i);
+            if (r.start() <= current.end() + 1) {
+                current = new ByteRange(current.start(), Math.max(current.end(), r.end()));
+            } else {
+                result.add(current);
+                current = r;
+            }
+        }
+        result.add(current);
+
+        return result;
+    }
+
+    record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String format(long total) {
+            return String.format("bytes %d-%d/%d", start, end, total);
+        }
+    }
+}
@@ -14,6 +14,7 @@ import it.doqui.libra.librabl.foundation.PrefixedQName;
 import it.doqui.libra.librabl.foundation.telemetry.TraceCategory;
 import it.doqui.libra.librabl.foundation.telemetry.TraceParam;
 import it.doqui.libra.librabl.foundation.telemetry.Traceable;
+import it.doqui.libra.librabl.utils.IOUtils;
 import it.doqui.libra.librabl.views.association.LinkItemRequest;
 import it.doqui.libra.librabl.views.association.RelationshipKind;
 import it.doqui.libra.librabl.views.node.*;
@@ -27,7 +28,6 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.rmi.RemoteException;
@@ -120,9 +120,7 @@ public class ContentServiceBridge extends AbstractServiceBridge {
 
         return call(context, () -> {
             NodeAttachment a = nodeContentService.getNodeContent(node.getUid(), cname);
-            try (FileInputStream is = new FileInputStream(a.getFile())) {
-                return is.readAllBytes();
-            }
+            return IOUtils.readFully(a.getFile().toPath());
         });
     }
 
@@ -197,11 +195,9 @@ public class ContentServiceBridge extends AbstractServiceBridge {
         try {
             var results = new ContentData[files.length];
             for (int i = 0; i < files.length; i++) {
-                try (FileInputStream is = new FileInputStream(files[i])) {
-                    ContentData data = new ContentData();
-                    data.setContent(is.readAllBytes());
-                    results[i] = data;
-                }
+                ContentData data = new ContentData();
+                data.setContent(IOUtils.readFully(files[i].toPath()));
+                results[i] = data;
             }
 
             return results;
@@ -664,7 +664,7 @@ public class DocumentServiceBridge extends AbstractServiceBridge {
 
                 if (op.isReturnData()) {
                     var attachment = nodeContentService.getNodeContent(outContentRef);
-                    result.setBuffer(IOUtils.readFully(Files.newInputStream(attachment.getFile().toPath())));
+                    result.setBuffer(IOUtils.readFully(attachment.getFile().toPath()));
                 }
             } else {
                 var extractedStream = documentService.unwrap(inContentRef);
@@ -692,7 +692,7 @@ public class DocumentServiceBridge extends AbstractServiceBridge {
 
                 if (op.isReturnData()) {
                     var attachment = nodeContentService.getNodeContent(outContentRef);
-                    result.setBuffer(IOUtils.readFully(Files.newInputStream(attachment.getFile().toPath())));
+                    result.setBuffer(IOUtils.readFully(attachment.getFile().toPath()));
                 }
             } else if (op.isReturnData()) {
                 result.setBuffer(IOUtils.readFully(extractedStream.getInputStream()));
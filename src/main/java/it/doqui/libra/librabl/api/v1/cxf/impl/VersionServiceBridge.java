@@ -15,6 +15,7 @@ import it.doqui.libra.librabl.foundation.PrefixedQName;
 import it.doqui.libra.librabl.foundation.exceptions.NotFoundException;
 import it.doqui.libra.librabl.foundation.telemetry.TraceCategory;
 import it.doqui.libra.librabl.foundation.telemetry.Traceable;
+import it.doqui.libra.librabl.utils.IOUtils;
 import it.doqui.libra.librabl.utils.ObjectUtils;
 import it.doqui.libra.librabl.views.association.AssociationItem;
 import it.doqui.libra.librabl.views.association.LinkItemRequest;
@@ -26,7 +27,6 @@ import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
-import java.io.FileInputStream;
 import java.util.*;
 
 import static it.doqui.libra.librabl.business.service.interfaces.Constants.CM_WORKINGCOPY_OWNER;
@@ -198,9 +198,7 @@ public class VersionServiceBridge extends AbstractServiceBridge {
 
         return call(context, () -> {
             NodeAttachment a = versionService.getVersionedContent(node.getUid(), cname, null);
-            try (FileInputStream is = new FileInputStream(a.getFile())) {
-                return is.readAllBytes();
-            }
+            return IOUtils.readFully(a.getFile().toPath());
         });
     }
 
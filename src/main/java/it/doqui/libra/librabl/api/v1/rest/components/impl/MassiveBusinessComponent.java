@@ -8,6 +8,7 @@ import it.doqui.libra.librabl.api.v1.rest.components.interfaces.NodesBusinessInt
 import it.doqui.libra.librabl.api.v1.rest.dto.MassiveDeleteNodeAction;
 import it.doqui.libra.librabl.api.v1.rest.dto.Node;
 import it.doqui.libra.librabl.foundation.flow.BusinessComponent;
+import it.doqui.libra.librabl.utils.IOUtils;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
@@ -85,14 +86,10 @@ public class MassiveBusinessComponent implements BusinessComponent {
 
         try (var zos = new ZipOutputStream(Files.newOutputStream(tmpPath))) {
             for (var file : files) {
-                try (var is = Files.newInputStream(file.toPath())) {
-                    var entry = new ZipEntry(file.getName());
-                    zos.putNextEntry(entry);
-                    for (int c = is.read(); c != -1; c = is.read()) {
-                        zos.write(c);
-                    }
-                    zos.flush();
-                }
+                var entry = new ZipEntry(file.getName());
+                zos.putNextEntry(entry);
+                IOUtils.transfer(file.toPath(), zos);
+                zos.flush();
             }
         }
 
@@ -1,5 +1,6 @@
 package it.doqui.libra.librabl.api.v1.rest.controllers;
 
+import it.doqui.libra.librabl.api.core.ContentResponseBuilder;
 import it.doqui.libra.librabl.api.v1.rest.components.interfaces.NodesBusinessInterface;
 import it.doqui.libra.librabl.api.v1.rest.dto.Data;
 import it.doqui.libra.librabl.api.v1.rest.dto.EncryptionInfo;
@@ -8,7 +9,10 @@ import it.doqui.libra.librabl.foundation.telemetry.TraceCategory;
 import it.doqui.libra.librabl.foundation.telemetry.TraceParam;
 import it.doqui.libra.librabl.foundation.telemetry.Traceable;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -25,14 +29,15 @@ public class ContentResource extends AbstractBridgeResource {
     public Response retrieveContentData(
         @PathParam("tenantName") String tenant,
         @PathParam("uid") String uuid,
-        @QueryParam("contentPropertyName") String contentPropertyName) {
+        @QueryParam("contentPropertyName") String contentPropertyName,
+        @Context @TraceParam(ignore = true) Request request,
+        @Context @TraceParam(ignore = true) HttpHeaders headers) {
         return call(tenant, () -> {
             var file = dispatcher.getProxy(NodesBusinessInterface.class).retrieveContentData(uuid, contentPropertyName);
-            return Response.ok(file)
+            return ContentResponseBuilder.of(file)
                 .type(MediaType.APPLICATION_OCTET_STREAM)
-                .header("Content-Disposition", "attachment; filename=\"" + uuid + ".bin\"")
-                .header("Content-Length", file.length())
-                .build();
+                .disposition("attachment; filename=\"" + uuid + ".bin\"")
+                .build(request, headers);
         });
     }
 
@@ -1,19 +1,25 @@
 package it.doqui.libra.librabl.api.v2.rest.controllers;
 
 import it.doqui.libra.librabl.api.core.AbstractResource;
+import it.doqui.libra.librabl.api.core.ContentResponseBuilder;
 import it.doqui.libra.librabl.business.service.document.DocumentStream;
 import it.doqui.libra.librabl.business.service.interfaces.DocumentAnalyzer;
 import it.doqui.libra.librabl.business.service.interfaces.DocumentService;
 import it.doqui.libra.librabl.business.service.interfaces.NodeContentService;
+import it.doqui.libra.librabl.business.service.interfaces.UploadService;
 import it.doqui.libra.librabl.business.service.node.NodeAttachment;
 import it.doqui.libra.librabl.foundation.exceptions.SystemException;
 import it.doqui.libra.librabl.utils.IOUtils;
 import it.doqui.libra.librabl.views.document.CertificateParams;
 import it.doqui.libra.librabl.views.node.ContentRef;
 import it.doqui.libra.librabl.views.node.ContentStream;
+import it.doqui.libra.librabl.views.node.UploadSessionRequest;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.http.entity.ContentType;
 
 import java.io.FileInputStream;
@@ -34,6 +40,9 @@ public class AbstractContentResource extends AbstractResource {
     @Inject
     protected DocumentAnalyzer documentAnalyzer;
 
+    @Inject
+    protected UploadService uploadService;
+
     protected ContentStream makeContentStream(String contentPropertyName, String contentType, String contentDisposition, InputStream is) {
         var ct = ContentType.parse(contentType);
         var cs = new ContentStream();
@@ -46,14 +55,10 @@ public class AbstractContentResource extends AbstractResource {
         return cs;
     }
 
-    protected Response getNodeContent(String uuid, String contentPropertyName, boolean inline, String fileName) {
+    protected Response getNodeContent(String uuid, String contentPropertyName, boolean inline, String fileName, Request request, HttpHeaders headers) {
         return call(() -> {
             NodeAttachment a = nodeContentService.getNodeContent(uuid, contentPropertyName, fileName);
-            var mimeType = IOUtils.mimeType(a.getContentProperty().getMimetype());
-            return Response.ok(a.getFile())
-                .type(mimeType)
-                .header("Content-Disposition", a.formatDisposition(inline))
-                .build();
+            return ContentResponseBuilder.of(a, inline).build(request, headers);
         });
     }
 
@@ -76,6 +81,34 @@ public class AbstractContentResource extends AbstractResource {
         });
     }
 
+    protected Response createUploadSession(String uuid, String contentPropertyName, UploadSessionRequest request) {
+        return call(() -> Response.status(Response.Status.CREATED)
+            .entity(uploadService.createUploadSession(uuid, contentPropertyName, request))
+            .build());
+    }
+
+    protected Response getUploadSession(String uuid, String sessionId) {
+        return call(() -> Response.ok(uploadService.getUploadSession(uuid, sessionId)).build());
+    }
+
+    protected Response uploadPart(String uuid, String sessionId, int partNumber, String checksum, InputStream is) {
+        return call(() -> Response.ok(uploadService.uploadPart(uuid, sessionId, partNumber, is, StringUtils.stripToNull(checksum))).build());
+    }
+
+    protected Response commitUploadSession(String uuid, String sessionId) {
+        return call(() -> {
+            uploadService.commitUploadSession(uuid, sessionId);
+            return Response.noContent().build();
+        });
+    }
+
+    protected Response abortUploadSession(String uuid, String sessionId) {
+        return call(() -> {
+            uploadService.abortUploadSession(uuid, sessionId);
+            return Response.noContent().build();
+        });
+    }
+
     protected ContentRef contentRef(String uuid, String contentPropertyName, String fileName) {
         var contentRef = new ContentRef();
         contentRef.setUuid(uuid);
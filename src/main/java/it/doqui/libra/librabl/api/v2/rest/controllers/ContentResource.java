@@ -3,15 +3,22 @@ package it.doqui.libra.librabl.api.v2.rest.controllers;
 import it.doqui.libra.librabl.api.v2.rest.dto.document.DocumentVerificationParameters;
 import it.doqui.libra.librabl.business.service.auth.UserContext;
 import it.doqui.libra.librabl.foundation.telemetry.TraceCategory;
+import it.doqui.libra.librabl.foundation.telemetry.TraceParam;
 import it.doqui.libra.librabl.foundation.telemetry.Traceable;
 import it.doqui.libra.librabl.views.document.CertificateParams;
 import it.doqui.libra.librabl.views.document.DocumentSignOperationResponse;
 import it.doqui.libra.librabl.views.document.FileFormatDescriptor;
 import it.doqui.libra.librabl.views.document.SealRequest;
 import it.doqui.libra.librabl.views.node.ContentRef;
+import it.doqui.libra.librabl.views.node.UploadPart;
+import it.doqui.libra.librabl.views.node.UploadSession;
+import it.doqui.libra.librabl.views.node.UploadSessionRequest;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -119,8 +126,106 @@ public class ContentResource extends AbstractContentResource {
         @PathParam("uuid") String uuid,
         @QueryParam("fileName") String fileName,
         @Parameter(description = "Request for inline content disposition")
-        @QueryParam("inline") @DefaultValue("false") boolean inline) {
-        return getNodeContent(uuid, CM_CONTENT, inline, fileName);
+        @QueryParam("inline") @DefaultValue("false") boolean inline,
+        @Context @TraceParam(ignore = true) Request request,
+        @Context @TraceParam(ignore = true) HttpHeaders headers) {
+        return getNodeContent(uuid, CM_CONTENT, inline, fileName, request, headers);
+    }
+
+    @POST
+    @Path("/uploads")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "createUploadSessionOfDefaultNodeContent", summary = "Start a resumable upload of the default node attachment, whose parts can be sent in parallel")
+    @Traceable(traceAllParameters = true, category = TraceCategory.UPDATE)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "201", description = "The upload session has been created", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+        @APIResponse(responseCode = "400", description = "Invalid size or part size"),
+        @APIResponse(responseCode = "403", description = "Permission denied"),
+        @APIResponse(responseCode = "404", description = "The specified node is not found"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response createUploadSessionOfDefaultNodeContent(
+        @PathParam("uuid") String uuid,
+        @RequestBody(
+            description = "Descriptor of the content to upload",
+            required = true,
+            content = @Content(schema = @Schema(implementation = UploadSessionRequest.class))
+        ) UploadSessionRequest request) {
+        return createUploadSession(uuid, CM_CONTENT, request);
+    }
+
+    @GET
+    @Path("/uploads/{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "getUploadSessionOfDefaultNodeContent", summary = "Return the upload session status, including the parts already received")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "The upload session is returned", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+        @APIResponse(responseCode = "403", description = "The upload session belongs to another user"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response getUploadSessionOfDefaultNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("sessionId") String sessionId) {
+        return getUploadSession(uuid, sessionId);
+    }
+
+    @PUT
+    @Path("/uploads/{sessionId}/parts/{partNumber}")
+    @Consumes(MediaType.WILDCARD)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "uploadPartOfDefaultNodeContent", summary = "Upload a part of the content. Parts can be sent concurrently and sent again after a failure")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "The part has been stored", content = @Content(schema = @Schema(implementation = UploadPart.class))),
+        @APIResponse(responseCode = "400", description = "Invalid part number, length or checksum"),
+        @APIResponse(responseCode = "403", description = "The upload session belongs to another user"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response uploadPartOfDefaultNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("sessionId") String sessionId,
+        @PathParam("partNumber") int partNumber,
+        @Parameter(description = "Hex encoded SHA-256 of the part, verified before accepting it")
+        @HeaderParam("X-Checksum-SHA256") String checksum,
+        @RequestBody InputStream body) {
+        return uploadPart(uuid, sessionId, partNumber, checksum, body);
+    }
+
+    @POST
+    @Path("/uploads/{sessionId}/commit")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "commitUploadSessionOfDefaultNodeContent", summary = "Attach the uploaded content to the node once all parts have been received")
+    @Traceable(traceAllParameters = true, category = TraceCategory.UPDATE)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "204", description = "The node content attachment has been set"),
+        @APIResponse(responseCode = "403", description = "Permission denied"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "409", description = "The upload session is already being committed"),
+        @APIResponse(responseCode = "412", description = "Some parts are missing"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response commitUploadSessionOfDefaultNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("sessionId") String sessionId) {
+        return commitUploadSession(uuid, sessionId);
+    }
+
+    @DELETE
+    @Path("/uploads/{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "abortUploadSessionOfDefaultNodeContent", summary = "Abort an upload session discarding the received parts")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "204", description = "The upload session has been removed"),
+        @APIResponse(responseCode = "403", description = "The upload session belongs to another user"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response abortUploadSessionOfDefaultNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("sessionId") String sessionId) {
+        return abortUploadSession(uuid, sessionId);
     }
 
     @GET
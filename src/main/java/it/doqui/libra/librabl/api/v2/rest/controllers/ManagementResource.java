@@ -9,6 +9,7 @@ import it.doqui.libra.librabl.business.service.auth.UserContext;
 import it.doqui.libra.librabl.business.service.interfaces.IntegrityService;
 import it.doqui.libra.librabl.business.service.interfaces.ManagementService;
 import it.doqui.libra.librabl.business.service.interfaces.StatService;
+import it.doqui.libra.librabl.cache.CacheStats;
 import it.doqui.libra.librabl.foundation.async.AsyncOperation;
 import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
 import it.doqui.libra.librabl.foundation.exceptions.NotFoundException;
@@ -229,6 +230,46 @@ public class ManagementResource extends AbstractResource {
         return Response.ok(statService.getAggregatedStatMeasure()).build();
     }
 
+    @GET
+    @Path("/caches")
+    @Operation(operationId = "getCacheStats", summary = "Get cache statistics")
+    @Traceable(ignore = true)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Statistics of every registered cache are returned"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response getCacheStats() {
+        return call(() -> Response.ok(managementService.getCacheStats()).build());
+    }
+
+    @GET
+    @Path("/caches/{name}")
+    @Operation(operationId = "getCacheStatsByName", summary = "Get statistics of the specified cache")
+    @Traceable(ignore = true)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Cache statistics are returned", content = @Content(schema = @Schema(implementation = CacheStats.class))),
+        @APIResponse(responseCode = "404", description = "Cache not found"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response getCacheStats(@PathParam("name") String name) {
+        return call(() -> managementService
+            .getCacheStats(name)
+            .map(stats -> Response.ok(stats).build())
+            .orElseThrow(() -> new NotFoundException(name)));
+    }
+
+    @GET
+    @Path("/content-store")
+    @Operation(operationId = "getContentStoreStats", summary = "Get content store client statistics")
+    @Traceable(ignore = true)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "Statistics of the content store client (e.g. the proxy connection pool) are returned"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response getContentStoreStats() {
+        return call(() -> Response.ok(managementService.getContentStoreStats()).build());
+    }
+
     @PATCH
     @Path("/operations")
     @Consumes({MediaType.APPLICATION_JSON_PATCH_JSON, MediaType.APPLICATION_JSON})
@@ -12,9 +12,15 @@ import it.doqui.libra.librabl.views.document.DocumentSignOperationResponse;
 import it.doqui.libra.librabl.views.document.FileFormatDescriptor;
 import it.doqui.libra.librabl.views.document.SealRequest;
 import it.doqui.libra.librabl.views.node.ContentRef;
+import it.doqui.libra.librabl.views.node.UploadPart;
+import it.doqui.libra.librabl.views.node.UploadSession;
+import it.doqui.libra.librabl.views.node.UploadSessionRequest;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -105,9 +111,11 @@ public class MultipleContentResource extends AbstractContentResource {
         @PathParam("contentPropertyName") String contentPropertyName,
         @QueryParam("fileName") String fileName,
         @Parameter(description = "Request for inline content disposition")
-        @QueryParam("inline") @DefaultValue("false") boolean inline) {
+        @QueryParam("inline") @DefaultValue("false") boolean inline,
+        @Context @TraceParam(ignore = true) Request request,
+        @Context @TraceParam(ignore = true) HttpHeaders headers) {
         try {
-            return getNodeContent(uuid, contentPropertyName, inline, fileName);
+            return getNodeContent(uuid, contentPropertyName, inline, fileName, request, headers);
         } catch (PreconditionFailedException e) {
             throw new NotFoundException(e.getMessage());
         }
@@ -134,6 +142,107 @@ public class MultipleContentResource extends AbstractContentResource {
         });
     }
 
+    @POST
+    @Path("/{contentPropertyName}/uploads")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "createUploadSessionOfNodeContent", summary = "Start a resumable upload of a node attachment, whose parts can be sent in parallel")
+    @Traceable(traceAllParameters = true, category = TraceCategory.UPDATE)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "201", description = "The upload session has been created", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+        @APIResponse(responseCode = "400", description = "Invalid size or part size"),
+        @APIResponse(responseCode = "403", description = "Permission denied"),
+        @APIResponse(responseCode = "404", description = "The specified node is not found"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response createUploadSessionOfNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("contentPropertyName") String contentPropertyName,
+        @RequestBody(
+            description = "Descriptor of the content to upload",
+            required = true,
+            content = @Content(schema = @Schema(implementation = UploadSessionRequest.class))
+        ) UploadSessionRequest request) {
+        return createUploadSession(uuid, contentPropertyName, request);
+    }
+
+    @GET
+    @Path("/{contentPropertyName}/uploads/{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "getUploadSessionOfNodeContent", summary = "Return the upload session status, including the parts already received")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "The upload session is returned", content = @Content(schema = @Schema(implementation = UploadSession.class))),
+        @APIResponse(responseCode = "403", description = "The upload session belongs to another user"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response getUploadSessionOfNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("contentPropertyName") String contentPropertyName,
+        @PathParam("sessionId") String sessionId) {
+        return getUploadSession(uuid, sessionId);
+    }
+
+    @PUT
+    @Path("/{contentPropertyName}/uploads/{sessionId}/parts/{partNumber}")
+    @Consumes(MediaType.WILDCARD)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "uploadPartOfNodeContent", summary = "Upload a part of the content. Parts can be sent concurrently and sent again after a failure")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "200", description = "The part has been stored", content = @Content(schema = @Schema(implementation = UploadPart.class))),
+        @APIResponse(responseCode = "400", description = "Invalid part number, length or checksum"),
+        @APIResponse(responseCode = "403", description = "The upload session belongs to another user"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response uploadPartOfNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("contentPropertyName") String contentPropertyName,
+        @PathParam("sessionId") String sessionId,
+        @PathParam("partNumber") int partNumber,
+        @Parameter(description = "Hex encoded SHA-256 of the part, verified before accepting it")
+        @HeaderParam("X-Checksum-SHA256") String checksum,
+        @RequestBody InputStream body) {
+        return uploadPart(uuid, sessionId, partNumber, checksum, body);
+    }
+
+    @POST
+    @Path("/{contentPropertyName}/uploads/{sessionId}/commit")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "commitUploadSessionOfNodeContent", summary = "Attach the uploaded content to the node once all parts have been received")
+    @Traceable(traceAllParameters = true, category = TraceCategory.UPDATE)
+    @APIResponses(value = {
+        @APIResponse(responseCode = "204", description = "The node content attachment has been set"),
+        @APIResponse(responseCode = "403", description = "Permission denied"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "409", description = "The upload session is already being committed"),
+        @APIResponse(responseCode = "412", description = "Some parts are missing"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response commitUploadSessionOfNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("contentPropertyName") String contentPropertyName,
+        @PathParam("sessionId") String sessionId) {
+        return commitUploadSession(uuid, sessionId);
+    }
+
+    @DELETE
+    @Path("/{contentPropertyName}/uploads/{sessionId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "abortUploadSessionOfNodeContent", summary = "Abort an upload session discarding the received parts")
+    @APIResponses(value = {
+        @APIResponse(responseCode = "204", description = "The upload session has been removed"),
+        @APIResponse(responseCode = "403", description = "The upload session belongs to another user"),
+        @APIResponse(responseCode = "404", description = "The upload session is not found or expired"),
+        @APIResponse(responseCode = "500", description = "Unexpected error")
+    })
+    public Response abortUploadSessionOfNodeContent(
+        @PathParam("uuid") String uuid,
+        @PathParam("contentPropertyName") String contentPropertyName,
+        @PathParam("sessionId") String sessionId) {
+        return abortUploadSession(uuid, sessionId);
+    }
+
     @GET
     @Path("/{contentPropertyName}/digest")
     @Produces(MediaType.APPLICATION_JSON)
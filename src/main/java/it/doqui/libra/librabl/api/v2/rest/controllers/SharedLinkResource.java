@@ -1,6 +1,7 @@
 package it.doqui.libra.librabl.api.v2.rest.controllers;
 
 import it.doqui.libra.librabl.api.core.AbstractResource;
+import it.doqui.libra.librabl.api.core.ContentResponseBuilder;
 import it.doqui.libra.librabl.business.service.auth.UserContext;
 import it.doqui.libra.librabl.business.service.interfaces.SharedLinkService;
 import it.doqui.libra.librabl.business.service.node.NodeAttachment;
@@ -9,14 +10,15 @@ import it.doqui.libra.librabl.foundation.exceptions.PreconditionFailedException;
 import it.doqui.libra.librabl.foundation.telemetry.TraceCategory;
 import it.doqui.libra.librabl.foundation.telemetry.TraceParam;
 import it.doqui.libra.librabl.foundation.telemetry.Traceable;
-import it.doqui.libra.librabl.utils.IOUtils;
 import it.doqui.libra.librabl.views.security.PkItem;
 import it.doqui.libra.librabl.views.share.KeyRequestPayload;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
 import lombok.extern.slf4j.Slf4j;
@@ -79,10 +81,12 @@ public class SharedLinkResource extends AbstractResource {
         @Context @TraceParam(ignore = true) UriInfo uriInfo,
         @HeaderParam("x-forwarded-for") @TraceParam(ignore = true) String xForwardFor,
         @PathParam("key") String key,
-        @QueryParam("inline") @DefaultValue("false") boolean inline) {
+        @QueryParam("inline") @DefaultValue("false") boolean inline,
+        @Context @TraceParam(ignore = true) Request request,
+        @Context @TraceParam(ignore = true) HttpHeaders headers) {
         return call(() -> {
             final var requestUri = Optional.ofNullable(xForwardFor).orElse(uriInfo.getRequestUri().toString());
-            return map(sharedLinkService.streamSharedContentData(requestUri, key), inline);
+            return map(sharedLinkService.streamSharedContentData(requestUri, key), inline, request, headers);
         });
     }
 
@@ -134,16 +138,11 @@ public class SharedLinkResource extends AbstractResource {
             throw new BadRequestException("Unable to verify signature: " + e.getMessage());
         }
 
-        return call(() -> map(sharedLinkService.streamSharedContentData(request), false));
+        return call(() -> map(sharedLinkService.streamSharedContentData(request), false, null, null));
     }
 
-    private Response map(NodeAttachment a, boolean inline) {
-        var mimeType = IOUtils.mimeType(a.getContentProperty().getMimetype());
-        var disposition = a.formatDisposition(inline);
-        log.debug("Returning content {} with mimeType {} and disposition {}", a.getContentProperty(), mimeType, disposition);
-        return Response.ok(a.getFile())
-            .type(mimeType)
-            .header("Content-Disposition", disposition)
-            .build();
+    private Response map(NodeAttachment a, boolean inline, Request request, HttpHeaders headers) {
+        log.debug("Returning content {} with disposition {}", a.getContentProperty(), a.formatDisposition(inline));
+        return ContentResponseBuilder.of(a, inline).build(request, headers);
     }
 }
@@ -1,6 +1,7 @@
 package it.doqui.libra.librabl.api.v2.rest.controllers;
 
 import it.doqui.libra.librabl.api.core.AbstractResource;
+import it.doqui.libra.librabl.api.core.ContentResponseBuilder;
 import it.doqui.libra.librabl.business.service.auth.UserContext;
 import it.doqui.libra.librabl.business.service.interfaces.VersionService;
 import it.doqui.libra.librabl.business.service.node.NodeAttachment;
@@ -16,7 +17,10 @@ import it.doqui.libra.librabl.views.version.VersionItem;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriBuilder;
 import lombok.Getter;
@@ -178,9 +182,11 @@ public class VersionResource extends AbstractResource {
         @PathParam("version") int version,
         @QueryParam("fileName") String fileName,
         @Parameter(description = "Request for inline content disposition")
-        @QueryParam("inline") @DefaultValue("false") boolean inline) {
+        @QueryParam("inline") @DefaultValue("false") boolean inline,
+        @Context @TraceParam(ignore = true) Request request,
+        @Context @TraceParam(ignore = true) HttpHeaders headers) {
         try {
-            return getNodeContent(uuid, version, null, inline, fileName);
+            return getNodeContent(uuid, version, null, inline, fileName, request, headers);
         } catch (PreconditionFailedException e) {
             throw new NotFoundException(e.getMessage());
         }
@@ -204,28 +210,20 @@ public class VersionResource extends AbstractResource {
         @PathParam("contentPropertyName") String contentPropertyName,
         @QueryParam("fileName") String fileName,
         @Parameter(description = "Request for inline content disposition")
-        @QueryParam("inline") @DefaultValue("false") boolean inline) {
+        @QueryParam("inline") @DefaultValue("false") boolean inline,
+        @Context @TraceParam(ignore = true) Request request,
+        @Context @TraceParam(ignore = true) HttpHeaders headers) {
         try {
-            return getNodeContent(uuid, version, contentPropertyName, inline, fileName);
+            return getNodeContent(uuid, version, contentPropertyName, inline, fileName, request, headers);
         } catch (PreconditionFailedException e) {
             throw new NotFoundException(e.getMessage());
         }
     }
 
-    private Response getNodeContent(String uuid, int version, String contentPropertyName, boolean inline, String fileName) {
+    private Response getNodeContent(String uuid, int version, String contentPropertyName, boolean inline, String fileName, Request request, HttpHeaders headers) {
         return call(() -> {
             NodeAttachment a = versionService.getVersionedContent(uuid, version, contentPropertyName, fileName);
-            String mimeType = a.getContentProperty().getMimetype();
-            try {
-                MediaType.valueOf(a.getContentProperty().getMimetype());
-            } catch (Exception e) {
-                mimeType = MediaType.APPLICATION_OCTET_STREAM;
-            }
-
-            return Response.ok(a.getFile())
-                .type(mimeType)
-                .header("Content-Disposition", a.formatDisposition(inline))
-                .build();
+            return ContentResponseBuilder.of(a, inline).build(request, headers);
         });
     }
 
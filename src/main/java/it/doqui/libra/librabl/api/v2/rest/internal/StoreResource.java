@@ -1,5 +1,6 @@
 package it.doqui.libra.librabl.api.v2.rest.internal;
 
+import it.doqui.libra.librabl.api.core.ContentResponseBuilder;
 import it.doqui.libra.librabl.business.service.auth.UserContext;
 import it.doqui.libra.librabl.business.service.auth.UserContextManager;
 import it.doqui.libra.librabl.business.service.interfaces.ContentStoreService;
@@ -9,6 +10,7 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -35,7 +37,7 @@ public class StoreResource {
     @GET
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
     @Operation(hidden = true)
-    public Response getFileData(@QueryParam("contentUrl") String contentUrl, @Context HttpHeaders headers) throws IOException {
+    public Response getFileData(@QueryParam("contentUrl") String contentUrl, @Context HttpHeaders headers, @Context Request request) throws IOException {
         verifySharedSecret(headers);
 
         var cxt = UserContextManager.getContext();
@@ -44,10 +46,10 @@ public class StoreResource {
         }
 
         var file = contentStoreManager.getPath(contentUrl).toFile();
-        return Response
-            .ok(file)
-            .header("Content-Type", MediaType.APPLICATION_OCTET_STREAM)
-            .build();
+        return ContentResponseBuilder.of(file)
+            .type(MediaType.APPLICATION_OCTET_STREAM)
+            .entityTag(ContentResponseBuilder.entityTag(contentUrl, file.length()))
+            .build(request, headers);
     }
 
     @PUT
@@ -59,7 +61,7 @@ public class StoreResource {
         verifySharedSecret(headers);
 
         log.info("Storing file to {} (user {})", contentUrl, Optional.ofNullable(UserContextManager.getContext()).map(UserContext::getAuthorityRef).map(Object::toString).orElse("anonymous"));
-        long size = contentStoreManager.writeStream(contentUrl, is);
+        long size = contentStoreManager.writeStream(contentUrl, is).size();
         return Response.ok(new ImmutablePair<>("size", size)).build();
     }
 
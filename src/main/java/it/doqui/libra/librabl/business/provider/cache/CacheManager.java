@@ -0,0 +1,65 @@
+package it.doqui.libra.librabl.business.provider.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.quarkus.runtime.ShutdownEvent;
+import it.doqui.libra.librabl.cache.CacheBuilder;
+import it.doqui.libra.librabl.cache.CachePolicy;
+import it.doqui.libra.librabl.cache.CacheStats;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+@ApplicationScoped
+@Slf4j
+public class CacheManager {
+
+    @ConfigProperty(name = "libra.cache.policy", defaultValue = "TINYLFU")
+    CachePolicy policy;
+
+    @ConfigProperty(name = "libra.cache.clean-up-interval", defaultValue = "30s")
+    Duration cleanUpInterval;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("cache-cleaner-%d").setDaemon(true).build());
+
+    private final Map<String, Supplier<CacheStats>> registry = new ConcurrentHashMap<>();
+
+    void onStop(@Observes ShutdownEvent ev) {
+        scheduler.shutdownNow();
+    }
+
+    public CacheBuilder<Object, Object> newBuilder(String name) {
+        log.debug("Creating cache {} using policy {}", name, policy);
+        return CacheBuilder.newBuilder()
+            .policy(policy)
+            .scheduler(scheduler, cleanUpInterval)
+            .recordStats()
+            .onBuild(cache -> register(name, cache::stats));
+    }
+
+    public void register(String name, Supplier<CacheStats> statsSupplier) {
+        if (registry.put(name, statsSupplier) != null) {
+            log.warn("Cache {} registered more than once", name);
+        }
+    }
+
+    public Map<String, CacheStats> getStats() {
+        var result = new TreeMap<String, CacheStats>();
+        registry.forEach((name, supplier) -> result.put(name, supplier.get()));
+        return result;
+    }
+
+    public Optional<CacheStats> getStats(String name) {
+        return Optional.ofNullable(registry.get(name)).map(Supplier::get);
+    }
+}
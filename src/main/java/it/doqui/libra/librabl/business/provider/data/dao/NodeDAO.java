@@ -228,9 +228,10 @@ public class NodeDAO extends AbstractDAO {
     public void incrementContentRef(String tenant, List<ContentProperty> contents) {
         if (contents != null && !contents.isEmpty()) {
             var sql = """
-                insert into ecm_files (tenant,contentref,contentsize,counter) values (?,?,?,1)\s
+                insert into ecm_files (tenant,contentref,contentsize,counter,digests) values (?,?,?,1,?::jsonb)\s
                 on conflict (tenant,contentref) do update set\s
-                counter = ecm_files.counter + excluded.counter\s
+                counter = ecm_files.counter + excluded.counter,\s
+                digests = coalesce(ecm_files.digests, excluded.digests)\s
                 where ecm_files.counter >= 0
                 """;
             call(conn -> {
@@ -241,6 +242,7 @@ public class NodeDAO extends AbstractDAO {
                             log.trace("Incrementing content counter of {} {}", tenant, cp.getContentUrl());
                             stmt.setString(2, cp.getContentUrl());
                             stmt.setLong(3, cp.getSize());
+                            stmt.setString(4, formatDigests(cp.getDigests()));
                             stmt.executeUpdate();
                         }
                     }
@@ -253,6 +255,62 @@ public class NodeDAO extends AbstractDAO {
         }
     }
 
+    // Registers a content-addressed file holding its row lock until the end of the transaction.
+    // Concurrent writers and the file cleaner of the same content are serialized on that lock.
+    public int lockContentRef(String tenant, String contentUrl, long size, Map<String, String> digests) {
+        var sql = """
+            insert into ecm_files (tenant,contentref,contentsize,counter,digests) values (?,?,?,0,?::jsonb)\s
+            on conflict (tenant,contentref) do update set\s
+            counter = ecm_files.counter,\s
+            digests = coalesce(ecm_files.digests, excluded.digests)\s
+            returning counter
+            """;
+        return call(conn -> {
+            try (var stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, tenant);
+                stmt.setString(2, contentUrl);
+                stmt.setLong(3, size);
+                stmt.setString(4, formatDigests(digests));
+                try (var rs = stmt.executeQuery()) {
+                    var counter = rs.next() ? rs.getInt("counter") : 0;
+                    log.trace("Locked content counter of {} {}: {}", tenant, contentUrl, counter);
+                    return counter;
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    // Returns the digest computed when the content was written, if the algorithm was configured at that time
+    public Optional<String> findContentDigest(String dbSchema, String tenant, String contentUrl, String algorithm) {
+        var sql = "select digests->>? as digest from ecm_files where tenant = ? and contentref = ?";
+        return DBUtils.call(ds, dbSchema, conn -> {
+            try (var stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, algorithm);
+                stmt.setString(2, tenant);
+                stmt.setString(3, contentUrl);
+                try (var rs = stmt.executeQuery()) {
+                    return rs.next() ? Optional.ofNullable(rs.getString("digest")) : Optional.<String>empty();
+                }
+            } catch (SQLException e) {
+                throw new SystemException(e);
+            }
+        });
+    }
+
+    private String formatDigests(Map<String, String> digests) {
+        if (digests == null || digests.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writeValueAsString(digests);
+        } catch (JsonProcessingException e) {
+            throw new SystemException(e);
+        }
+    }
+
     public void unCountContentRef(String dbSchema, String tenant, ContentProperty cp) {
         if (cp != null && cp.getContentUrl() != null) {
             var sql = """
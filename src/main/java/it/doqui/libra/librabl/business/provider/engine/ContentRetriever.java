@@ -58,10 +58,23 @@ public class ContentRetriever {
     }
 
     public NodeAttachment retrieveContent(NodeData data, String contentPropertyName, String fileName) throws IOException {
+        return retrieveContent(data, contentPropertyName, fileName, true);
+    }
+
+    // The attachment has no file: the content is neither downloaded from a remote store nor inflated
+    public NodeAttachment describeContent(NodeData data, String contentPropertyName, String fileName) {
+        try {
+            return retrieveContent(data, contentPropertyName, fileName, false);
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    private NodeAttachment retrieveContent(NodeData data, String contentPropertyName, String fileName, boolean withFile) throws IOException {
         var cp = Optional.ofNullable(data.getContentProperty(contentPropertyName, fileName))
             .orElseThrow(PreconditionFailedException::new);
 
-        var f = Optional.ofNullable(contentStoreService.getPath(cp.getContentUrl())).map(Path::toFile).orElse(null);
+        var f = withFile ? Optional.ofNullable(contentStoreService.getPath(cp.getContentUrl())).map(Path::toFile).orElse(null) : null;
         var ctx = UserContextManager.getContext();
         var store = NodeAttachment.StoreLocation.builder()
             .dbSchema(ctx.getDbSchema())
@@ -7,6 +7,7 @@ import it.doqui.dosign.dosign.business.session.dosign.defered.DosignDefered;
 import it.doqui.dosign.dosign.business.session.dosign.defered.SealDocumentInDto;
 import it.doqui.dosign.dosign.business.session.dosign.defered.VerifyDocumentInDto;
 import it.doqui.index.ecmengine.mtom.dto.VerifyReport;
+import it.doqui.libra.librabl.business.provider.data.dao.NodeDAO;
 import it.doqui.libra.librabl.business.provider.integration.dosign.SoapClientProducer;
 import it.doqui.libra.librabl.business.service.document.DocumentStream;
 import it.doqui.libra.librabl.business.service.exceptions.SignOperationException;
@@ -41,6 +42,7 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.GregorianCalendar;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -80,6 +82,9 @@ public class DocumentServiceImpl implements DocumentService {
     @Inject
     DocumentAnalyzer documentAnalyzer;
 
+    @Inject
+    NodeDAO nodeDAO;
+
     @ConfigProperty(name = "libra.dosign.operation.timeout", defaultValue = "15s")
     Duration operationTimeout;
 
@@ -152,6 +157,22 @@ public class DocumentServiceImpl implements DocumentService {
 
     @Override
     public DigestResponse digest(ContentRef contentRef, boolean enveloped, String algorithm) throws NoSuchAlgorithmException, IOException {
+        if (!enveloped) {
+            // digests computed while writing the content avoid fetching and reading it again
+            var d = nodeContentService.describeNodeContent(contentRef);
+            if (d.getStore() != null) {
+                var stored = nodeDAO.findContentDigest(
+                    d.getStore().getDbSchema(),
+                    d.getStore().getTenant(),
+                    d.getContentProperty().getContentUrl(),
+                    algorithm.trim().toUpperCase(Locale.ROOT));
+                if (stored.isPresent()) {
+                    log.debug("Using stored {} digest of {}", algorithm, d.getContentProperty().getContentUrl());
+                    return new DigestResponse(algorithm, stored.get());
+                }
+            }
+        }
+
         var a = nodeContentService.getNodeContent(contentRef);
         try (var stream = Files.newInputStream(a.getFile().toPath())) {
             final InputStream inStream;
@@ -175,7 +196,7 @@ public class DocumentServiceImpl implements DocumentService {
     @Override
     public DigestResponse digest(InputStream stream, String algorithm) throws NoSuchAlgorithmException, IOException {
         MessageDigest md = MessageDigest.getInstance(algorithm);
-        var data = new byte[1024];
+        var data = new byte[64 * 1024];
         int byteRead;
         while ((byteRead = stream.read(data)) != -1) {
             md.update(data, 0, byteRead);
@@ -50,7 +50,6 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.xml.namespace.QName;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
@@ -60,7 +59,6 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -218,10 +216,26 @@ public class NodeManager implements NodeService, NodeContentService {
 
     @Override
     public NodeAttachment getNodeContent(ContentRef contentRef) {
+        return getNodeContent(contentRef, true);
+    }
+
+    @Override
+    public NodeAttachment describeNodeContent(ContentRef contentRef) {
+        return getNodeContent(contentRef, false);
+    }
+
+    private NodeAttachment getNodeContent(ContentRef contentRef, boolean withFile) {
         Supplier<NodeAttachment> f = () -> {
             try {
                 log.debug("Searching for node {}, cppn: {}, fileName: {}, tenant: {}, schema: {}", contentRef.getUuid(), contentRef.getContentPropertyName(), contentRef.getFileName(), UserContextManager.getTenant(), UserContextManager.getContext().getDbSchema());
-                return getNodeContent(contentRef.getUuid(), contentRef.getContentPropertyName(), contentRef.getFileName());
+                var n = nodeDAO
+                    .findNodeByUUID(contentRef.getUuid(), Set.of(MapOption.DEFAULT), QueryScope.DEFAULT)
+                    .map(node -> permissionValidator.requirePermission(node, PermissionFlag.R))
+                    .orElseThrow(() -> new NotFoundException(contentRef.getUuid()));
+
+                return withFile
+                    ? getNodeContent(n, contentRef.getContentPropertyName(), contentRef.getFileName())
+                    : contentRetriever.describeContent(n.getData(), contentRef.getContentPropertyName(), contentRef.getFileName());
             } catch (IOException e) {
                 throw new SystemException(e);
             } catch (PreconditionFailedException e) {
@@ -346,8 +360,15 @@ public class NodeManager implements NodeService, NodeContentService {
         });
     }
 
-    private ContentProperty createContentProperty(String tenant, ContentDescriptor descriptor, final InputStream stream) {
-        try (stream) {
+    String currentStore() {
+        return UserContextManager.getTenantData()
+            .map(TenantData::getDefaultStore)
+            .orElse(defaultContentStore);
+    }
+
+    private ContentProperty createContentProperty(String tenant, ContentStream descriptor) {
+        final var stagedFile = descriptor.getStagedFile();
+        try (var stream = descriptor.getInputStream()) {
             ContentProperty cp = new ContentProperty();
             cp.setName(descriptor.getName());
             cp.setFileName(descriptor.getFileName());
@@ -366,11 +387,28 @@ public class NodeManager implements NodeService, NodeContentService {
                 cp.setMimetype(descriptor.getMimetype());
             }
 
+            var store = currentStore();
+            if (contentStoreManager.isContentAddressable(store)) {
+                var staged = stagedFile != null
+                    ? contentStoreManager.stageFile(store, tenant, stagedFile)
+                    : contentStoreManager.stageStream(store, tenant, stream);
+                cp.setContentUrl(staged.contentUrl());
+                cp.setSize(staged.size());
+                cp.setDigests(staged.digests());
+
+                // identical contents share the same file: a duplicate only increments the reference counter
+                int counter = nodeDAO.lockContentRef(tenant, staged.contentUrl(), staged.size(), staged.digests());
+                if (contentStoreManager.commitStaged(staged)) {
+                    TransactionService.current().options().registerCreatedContentUrl(staged.contentUrl());
+                } else {
+                    log.debug("Content {} deduplicated (counter {})", staged.contentUrl(), counter);
+                }
+
+                return cp;
+            }
+
             // format example contentUrl=store://2012/3/23/16/46/60b73f1b-74ff-11e1-aeda-b7ce474e1849.bin
             var cal = Calendar.getInstance();
-            var store = UserContextManager.getTenantData()
-                .map(TenantData::getDefaultStore)
-                .orElse(defaultContentStore);
 
             var contentUrl = String.format("%s://%d/%s%d/%d/%d/%d/%s.bin",
                 store,
@@ -384,9 +422,13 @@ public class NodeManager implements NodeService, NodeContentService {
             );
             cp.setContentUrl(contentUrl);
 
-            long size = contentStoreManager.writeStream(contentUrl, stream);
-            log.debug("size = {}", size);
-            cp.setSize(size);
+            var written = stagedFile != null
+                ? contentStoreManager.commitFile(contentUrl, stagedFile)
+                : contentStoreManager.writeStream(contentUrl, stream);
+            log.debug("size = {}", written.size());
+            cp.setSize(written.size());
+            cp.setDigests(written.digests());
+            TransactionService.current().options().registerCreatedContentUrl(contentUrl);
 
             return cp;
         } catch (IOException e) {
@@ -561,7 +603,7 @@ public class NodeManager implements NodeService, NodeContentService {
         var properties = node.getData().getProperties();
         if (contentPropertyNames != null && !contentPropertyNames.isEmpty()) {
             // contents organized by property name
-            final Map<String, Map<String, ContentProperty>> cMap = buildContentsMap(node);
+            final Map<String, List<ContentProperty>> cMap = buildContentsMap(node);
 
             var incrementingContents = new ArrayList<ContentProperty>();
             var decrementingContents = new ArrayList<ContentProperty>();
@@ -578,15 +620,13 @@ public class NodeManager implements NodeService, NodeContentService {
                     }
                 }
 
-                // previous contents of a property organized by url
-                var pMap = cMap.get(pname);
-                if (pMap == null) {
-                    pMap = new LinkedHashMap<>();
-                }
+                // previous contents of a property
+                // (deduplicated contents may share the url: each item is a distinct reference)
+                var pList = new ArrayList<>(cMap.getOrDefault(pname, List.of()));
 
                 var target = new ArrayList<ContentProperty>();
                 for (ContentProperty cp : contents) {
-                    var previous = pMap.remove(cp.getContentUrl());
+                    var previous = removeByContentUrl(pList, cp.getContentUrl());
                     if (previous == null) {
                         // the content url was not present in the contents array
                         // therefore it must be added to the files table
@@ -596,14 +636,14 @@ public class NodeManager implements NodeService, NodeContentService {
                     if (cp.getOp() != null) {
                         switch (cp.getOp().getMode()) {
                             case ADD -> {
-                                target.addAll(pMap.values());
-                                pMap.clear();
+                                target.addAll(pList);
+                                pList.clear();
                                 target.add(cp);
                             }
 
                             case REPLACE, REMOVE -> {
-                                if (!pMap.isEmpty()) {
-                                    for (var prev : pMap.values()) {
+                                if (!pList.isEmpty()) {
+                                    for (var prev : pList) {
                                         if (!StringUtils.equals(prev.getFileName(), cp.getOp().getCurrentFileName())) {
                                             target.add(prev);
                                         } else if (!StringUtils.equals(prev.getContentUrl(), cp.getContentUrl())) {
@@ -611,7 +651,7 @@ public class NodeManager implements NodeService, NodeContentService {
                                         }
                                     }
 
-                                    pMap.clear();
+                                    pList.clear();
                                 } else if (!target.isEmpty()) {
                                     var newTarget = new ArrayList<ContentProperty>();
                                     for (var prev : target) {
@@ -635,39 +675,51 @@ public class NodeManager implements NodeService, NodeContentService {
                     }
                 }
 
-                decrementingContents.addAll(pMap.values());
+                decrementingContents.addAll(pList);
 
                 // put all contents into full map
-                cMap.put(pname, target.stream().collect(Collectors.toMap(ContentProperty::getContentUrl, Function.identity())));
+                cMap.put(pname, target);
             } // end for each content property
 
             nodeDAO.incrementContentRef(node.getTenant(), incrementingContents);
             nodeDAO.decrementContentRef(node.getTenant(), decrementingContents);
 
             node.getData().getContents().clear();
-            node.getData().getContents().addAll(cMap.values().stream().flatMap(m -> m.values().stream()).toList());
+            node.getData().getContents().addAll(cMap.values().stream().flatMap(List::stream).toList());
         }
     }
 
-    private Map<String, Map<String, ContentProperty>> buildContentsMap(ActiveNode node) {
-        final Map<String, Map<String,ContentProperty>> cMap = new HashMap<>();
+    private Map<String, List<ContentProperty>> buildContentsMap(ActiveNode node) {
+        final Map<String, List<ContentProperty>> cMap = new HashMap<>();
         for (ContentProperty cp : node.getData().getContents()) {
             cMap.compute(cp.getName(), (k,v) -> {
-                var map = v;
+                var list = v;
                 if (v == null) {
-                    map = new LinkedHashMap<>();
+                    list = new ArrayList<>();
                 }
 
                 if (StringUtils.isNotBlank(cp.getContentUrl())) {
-                    map.put(cp.getContentUrl(), cp);
+                    list.add(cp);
                 }
 
-                return map;
+                return list;
             });
         }
         return cMap;
     }
 
+    private ContentProperty removeByContentUrl(List<ContentProperty> contents, String contentUrl) {
+        for (var it = contents.iterator(); it.hasNext(); ) {
+            var cp = it.next();
+            if (StringUtils.equals(cp.getContentUrl(), contentUrl)) {
+                it.remove();
+                return cp;
+            }
+        }
+
+        return null;
+    }
+
     private void processContentItem(String pname, Object item, ActiveNode node, final List<ContentProperty> contents) {
         if (item instanceof ContentBasicDescriptor cd) {
             ObjectUtils.add(contents, createContentDescriptor(pname, node, cd));
@@ -701,10 +753,8 @@ public class NodeManager implements NodeService, NodeContentService {
         if (cd instanceof ContentProperty cp) {
             return cp;
         } else if (cd instanceof ContentStream cs) {
-            if (cs.getInputStream() != null) {
-                var cp = createContentProperty(node.getTenant(), cs, cs.getInputStream());
-                TransactionService.current().options().registerCreatedContentUrl(cp.getContentUrl());
-                return cp;
+            if (cs.getInputStream() != null || cs.getStagedFile() != null) {
+                return createContentProperty(node.getTenant(), cs);
             }
         } else if (cd instanceof ExternalContentDescriptor ecd) {
             var cc = retrieveSource(ecd);
@@ -720,9 +770,7 @@ public class NodeManager implements NodeService, NodeContentService {
                     return cp;
                 } else if (cc instanceof ContentStream cs) {
                     if (cs.getInputStream() != null) {
-                        var cp = createContentProperty(node.getTenant(), cs, cs.getInputStream());
-                        TransactionService.current().options().registerCreatedContentUrl(cp.getContentUrl());
-                        return cp;
+                        return createContentProperty(node.getTenant(), cs);
                     }
                 }
             }
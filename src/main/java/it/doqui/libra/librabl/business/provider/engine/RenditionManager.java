@@ -684,7 +684,7 @@ public class RenditionManager implements RenditionService {
 
         try {
             String contentUrl = contentProperty.getContentUrl();
-            result.setBinaryData(IOUtils.readFully(Files.newInputStream(contentStoreManager.getPath(contentUrl))));
+            result.setBinaryData(IOUtils.readFully(contentStoreManager.getPath(contentUrl)));
         } catch (IOException e) {
             throw new DataIOException(e.getMessage());
         }
@@ -720,7 +720,7 @@ public class RenditionManager implements RenditionService {
         r.setGenerated(ObjectUtils.getAsBoolean(node.getProperties().get(PROP_ECMSYS_GENERATED), false));
 
         try {
-            r.setBinaryData(IOUtils.readFully(Files.newInputStream(contentRetriever.retrieveContent(node.getData(), contentProperty.getName(), null).getFile().toPath())));
+            r.setBinaryData(IOUtils.readFully(contentRetriever.retrieveContent(node.getData(), contentProperty.getName(), null).getFile().toPath()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
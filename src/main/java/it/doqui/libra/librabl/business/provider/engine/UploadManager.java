@@ -0,0 +1,427 @@
+package it.doqui.libra.librabl.business.provider.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.configuration.MemorySize;
+import it.doqui.libra.librabl.business.service.auth.UserContextManager;
+import it.doqui.libra.librabl.business.service.interfaces.ContentStoreService;
+import it.doqui.libra.librabl.business.service.interfaces.NodeContentService;
+import it.doqui.libra.librabl.business.service.interfaces.UploadService;
+import it.doqui.libra.librabl.business.service.node.PermissionFlag;
+import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
+import it.doqui.libra.librabl.foundation.exceptions.ConflictException;
+import it.doqui.libra.librabl.foundation.exceptions.ForbiddenException;
+import it.doqui.libra.librabl.foundation.exceptions.NotFoundException;
+import it.doqui.libra.librabl.foundation.exceptions.PreconditionFailedException;
+import it.doqui.libra.librabl.foundation.exceptions.SystemException;
+import it.doqui.libra.librabl.views.node.ContentStream;
+import it.doqui.libra.librabl.views.node.UploadPart;
+import it.doqui.libra.librabl.views.node.UploadSession;
+import it.doqui.libra.librabl.views.node.UploadSessionRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Resumable uploads: parts are written in place into a file preallocated in the staging area of the
+// target store, so that the committed content is moved into its final location without further copies.
+@ApplicationScoped
+@Slf4j
+public class UploadManager implements UploadService {
+
+    private static final String UPLOADS_DIR = "uploads";
+    private static final String SESSION_FILE = "session.json";
+    private static final String COMMITTING_FILE = "session.committing";
+    private static final String DATA_FILE = "data";
+    private static final String PARTS_DIR = "parts";
+    private static final String WRITING_SUFFIX = ".writing";
+    private static final Pattern SESSION_ID = Pattern.compile("^[0-9a-f]{32}$");
+    private static final Pattern SHA256 = Pattern.compile("^[0-9a-fA-F]{64}$");
+
+    @ConfigProperty(name = "libra.upload.default-part-size", defaultValue = "8M")
+    MemorySize defaultPartSize;
+
+    @ConfigProperty(name = "libra.upload.min-part-size", defaultValue = "1M")
+    MemorySize minPartSize;
+
+    @ConfigProperty(name = "libra.upload.max-part-size", defaultValue = "128M")
+    MemorySize maxPartSize;
+
+    @ConfigProperty(name = "libra.upload.max-parts", defaultValue = "10000")
+    int maxParts;
+
+    @ConfigProperty(name = "libra.upload.session-ttl", defaultValue = "24h")
+    Duration sessionTimeToLive;
+
+    @Inject
+    ContentStoreService contentStoreService;
+
+    @Inject
+    NodeContentService nodeContentService;
+
+    @Inject
+    NodeManager nodeManager;
+
+    @Inject
+    SimpleNodeAccessManager simpleNodeAccessManager;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Override
+    public UploadSession createUploadSession(String uuid, String contentPropertyName, UploadSessionRequest request) {
+        if (request.getSize() < 0) {
+            throw new BadRequestException("Invalid upload size " + request.getSize());
+        }
+
+        long partSize = request.getPartSize() == null ? defaultPartSize.asLongValue() : request.getPartSize();
+        if (partSize < minPartSize.asLongValue() || partSize > maxPartSize.asLongValue()) {
+            throw new BadRequestException(String.format("Part size must be between %d and %d bytes", minPartSize.asLongValue(), maxPartSize.asLongValue()));
+        }
+
+        long partCount = request.getSize() == 0 ? 1 : (request.getSize() + partSize - 1) / partSize;
+        if (partCount > maxParts) {
+            throw new BadRequestException(String.format("Too many parts: %d exceeds %d", partCount, maxParts));
+        }
+
+        simpleNodeAccessManager.getNode(uuid, PermissionFlag.W);
+
+        var now = ZonedDateTime.now();
+        var session = new UploadSession();
+        session.setId(UUID.randomUUID().toString().replace("-", ""));
+        session.setUuid(uuid);
+        session.setContentPropertyName(contentPropertyName);
+        session.setFileName(request.getFileName());
+        session.setMimetype(request.getMimetype());
+        session.setEncoding(request.getEncoding());
+        session.setSize(request.getSize());
+        session.setPartSize(partSize);
+        session.setPartCount((int) partCount);
+        session.setAppend(request.isAppend());
+        session.setCurrentFileName(request.getCurrentFileName());
+        session.setCreatedAt(now);
+        session.setExpiresAt(now.plus(sessionTimeToLive));
+
+        var stored = new StoredSession();
+        stored.setTenant(UserContextManager.getTenant());
+        stored.setAuthority(UserContextManager.getContext().getAuthority());
+        stored.setSession(session);
+
+        try {
+            var uploads = getUploadsPath();
+            purgeExpiredSessions(uploads);
+
+            var dir = uploads.resolve(session.getId());
+            Files.createDirectories(dir.resolve(PARTS_DIR));
+
+            // a sparse file of the final size: parts are written at their own offset
+            try (var raf = new RandomAccessFile(dir.resolve(DATA_FILE).toFile(), "rw")) {
+                raf.setLength(session.getSize());
+            }
+
+            objectMapper.writeValue(dir.resolve(SESSION_FILE).toFile(), stored);
+            log.info("Created upload session {} of {} bytes in {} parts for node {}", session.getId(), session.getSize(), partCount, uuid);
+            return session;
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    @Override
+    public UploadSession getUploadSession(String uuid, String sessionId) {
+        var dir = getSessionPath(sessionId);
+        var session = readSession(dir, uuid, SESSION_FILE).getSession();
+        fillReceivedParts(dir, session);
+        return session;
+    }
+
+    @Override
+    public UploadPart uploadPart(String uuid, String sessionId, int partNumber, InputStream stream, String checksum) {
+        var dir = getSessionPath(sessionId);
+        var session = readSession(dir, uuid, SESSION_FILE).getSession();
+        if (partNumber < 1 || partNumber > session.getPartCount()) {
+            throw new BadRequestException(String.format("Part number must be between 1 and %d", session.getPartCount()));
+        }
+
+        if (checksum != null && !SHA256.matcher(checksum).matches()) {
+            throw new BadRequestException("Invalid SHA-256 checksum " + checksum);
+        }
+
+        long position = (partNumber - 1) * session.getPartSize();
+        long length = Math.min(session.getPartSize(), session.getSize() - position);
+
+        // the part is announced by a marker locked while it is written, before checking that the session
+        // is still open: since a commit claims the session before looking for such markers,
+        // either the part sees the commit or the commit sees the part
+        var writing = dir.resolve(PARTS_DIR).resolve(partNumber + "." + UUID.randomUUID() + WRITING_SUFFIX);
+        try (stream;
+             var channel = FileChannel.open(writing, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            var lock = channel.lock();
+            try {
+                if (!Files.exists(dir.resolve(SESSION_FILE))) {
+                    throw new ConflictException(String.format("Upload session %s is being committed", sessionId));
+                }
+
+                var written = contentStoreService.writeRange(dir.resolve(DATA_FILE), position, length, stream);
+                if (written.size() != length || stream.read() != -1) {
+                    throw new BadRequestException(String.format("Part %d must be %d bytes long", partNumber, length));
+                }
+
+                var sha256 = written.digests().get("SHA-256");
+                if (checksum != null && !StringUtils.equalsIgnoreCase(checksum, sha256)) {
+                    throw new BadRequestException(String.format("Checksum mismatch for part %d: expected %s, found %s", partNumber, checksum, sha256));
+                }
+
+                // the marker is written after the data, so that a part is listed only when complete
+                var marker = dir.resolve(PARTS_DIR).resolve(String.valueOf(partNumber));
+                var tempMarker = dir.resolve(PARTS_DIR).resolve(partNumber + "." + UUID.randomUUID() + ".tmp");
+                Files.writeString(tempMarker, sha256, StandardCharsets.US_ASCII);
+                Files.move(tempMarker, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                log.debug("Received part {} of upload session {} ({} bytes)", partNumber, sessionId, length);
+                return new UploadPart(partNumber, length, sha256);
+            } finally {
+                lock.release();
+            }
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException(sessionId);
+        } catch (IOException e) {
+            throw new SystemException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(writing);
+            } catch (IOException e) {
+                log.warn("Unable to delete {}: {}", writing, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void commitUploadSession(String uuid, String sessionId) {
+        var dir = getSessionPath(sessionId);
+        var stored = readSession(dir, uuid, SESSION_FILE);
+        var session = stored.getSession();
+        fillReceivedParts(dir, session);
+        if (session.getReceivedParts().size() < session.getPartCount()) {
+            throw new PreconditionFailedException(String.format("Upload session %s is incomplete: %d parts of %d received",
+                sessionId, session.getReceivedParts().size(), session.getPartCount()));
+        }
+
+        // renaming the session file claims the commit, so that concurrent commits are rejected
+        try {
+            Files.move(dir.resolve(SESSION_FILE), dir.resolve(COMMITTING_FILE), StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            throw new ConflictException(String.format("Upload session %s is being committed", sessionId));
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+
+        if (isWritingParts(dir)) {
+            releaseSession(dir);
+            throw new ConflictException(String.format("Upload session %s has parts being uploaded", sessionId));
+        }
+
+        var cs = new ContentStream();
+        cs.setName(session.getContentPropertyName());
+        cs.setFileName(session.getFileName());
+        cs.setMimetype(session.getMimetype());
+        cs.setEncoding(session.getEncoding());
+        cs.setStagedFile(dir.resolve(DATA_FILE));
+
+        try {
+            if (session.isAppend()) {
+                nodeContentService.addNodeContent(uuid, cs);
+            } else {
+                nodeContentService.setNodeContent(uuid, cs, session.getCurrentFileName());
+            }
+        } catch (RuntimeException e) {
+            // the session can be committed again unless its data have already been moved
+            if (Files.exists(dir.resolve(DATA_FILE))) {
+                releaseSession(dir);
+            } else {
+                deleteSession(dir);
+            }
+            throw e;
+        }
+
+        log.info("Upload session {} committed into node {}", sessionId, uuid);
+        deleteSession(dir);
+    }
+
+    @Override
+    public void abortUploadSession(String uuid, String sessionId) {
+        var dir = getSessionPath(sessionId);
+        readSession(dir, uuid, SESSION_FILE);
+        deleteSession(dir);
+        log.info("Upload session {} aborted", sessionId);
+    }
+
+    private void releaseSession(Path dir) {
+        try {
+            Files.move(dir.resolve(COMMITTING_FILE), dir.resolve(SESSION_FILE), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Unable to release upload session {}: {}", dir.getFileName(), e.getMessage());
+        }
+    }
+
+    // A marker whose lock can be acquired has been left by an interrupted upload and is removed
+    private boolean isWritingParts(Path dir) {
+        try (Stream<Path> parts = Files.list(dir.resolve(PARTS_DIR))) {
+            for (var marker : parts.filter(p -> p.getFileName().toString().endsWith(WRITING_SUFFIX)).toList()) {
+                try (var channel = FileChannel.open(marker, StandardOpenOption.WRITE)) {
+                    var lock = channel.tryLock();
+                    if (lock == null) {
+                        return true;
+                    }
+
+                    lock.release();
+                    Files.deleteIfExists(marker);
+                } catch (OverlappingFileLockException e) {
+                    return true;
+                } catch (NoSuchFileException e) {
+                    // the part has just completed
+                }
+            }
+
+            return false;
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    private Path getUploadsPath() throws IOException {
+        return contentStoreService.getStagingPath(nodeManager.currentStore()).resolve(UPLOADS_DIR);
+    }
+
+    private Path getSessionPath(String sessionId) {
+        if (sessionId == null || !SESSION_ID.matcher(sessionId).matches()) {
+            throw new NotFoundException(sessionId);
+        }
+
+        try {
+            return getUploadsPath().resolve(sessionId);
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    private StoredSession readSession(Path dir, String uuid, String fileName) {
+        var file = dir.resolve(fileName);
+        if (!Files.exists(file)) {
+            if (Files.exists(dir.resolve(COMMITTING_FILE))) {
+                throw new ConflictException(String.format("Upload session %s is being committed", dir.getFileName()));
+            }
+
+            throw new NotFoundException(dir.getFileName().toString());
+        }
+
+        final StoredSession stored;
+        try {
+            stored = objectMapper.readValue(file.toFile(), StoredSession.class);
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+
+        var session = stored.getSession();
+        if (!StringUtils.equals(stored.getTenant(), UserContextManager.getTenant()) || !StringUtils.equals(session.getUuid(), uuid)) {
+            throw new NotFoundException(session.getId());
+        }
+
+        if (!StringUtils.equals(stored.getAuthority(), UserContextManager.getContext().getAuthority())) {
+            throw new ForbiddenException("Upload session " + session.getId() + " belongs to another user");
+        }
+
+        if (session.getExpiresAt().isBefore(ZonedDateTime.now())) {
+            deleteSession(dir);
+            throw new NotFoundException(session.getId());
+        }
+
+        return stored;
+    }
+
+    private void fillReceivedParts(Path dir, UploadSession session) {
+        try (Stream<Path> parts = Files.list(dir.resolve(PARTS_DIR))) {
+            session.setReceivedParts(parts
+                .map(p -> p.getFileName().toString())
+                .filter(StringUtils::isNumeric)
+                .map(Integer::valueOf)
+                .sorted()
+                .toList());
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    private void purgeExpiredSessions(Path uploads) {
+        if (!Files.isDirectory(uploads)) {
+            return;
+        }
+
+        var now = ZonedDateTime.now();
+        try (Stream<Path> dirs = Files.list(uploads)) {
+            dirs.filter(Files::isDirectory).forEach(dir -> {
+                try {
+                    var file = dir.resolve(SESSION_FILE);
+                    final boolean expired;
+                    if (Files.exists(file)) {
+                        expired = objectMapper.readValue(file.toFile(), StoredSession.class).getSession().getExpiresAt().isBefore(now);
+                    } else {
+                        // abandoned while committing
+                        var lastModified = Files.getLastModifiedTime(dir).toInstant();
+                        expired = lastModified.plus(sessionTimeToLive).isBefore(now.toInstant());
+                    }
+
+                    if (expired) {
+                        log.info("Removing expired upload session {}", dir.getFileName());
+                        deleteSession(dir);
+                    }
+                } catch (IOException e) {
+                    log.warn("Unable to check upload session {}: {}", dir, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Unable to purge upload sessions in {}: {}", uploads, e.getMessage());
+        }
+    }
+
+    private void deleteSession(Path dir) {
+        contentStoreService.discardRanges(dir.resolve(DATA_FILE));
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.warn("Unable to delete {}: {}", p, e.getMessage());
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // already removed
+        } catch (IOException e) {
+            log.warn("Unable to delete upload session {}: {}", dir, e.getMessage());
+        }
+    }
+
+    @Getter
+    @Setter
+    static class StoredSession {
+        private String tenant;
+        private String authority;
+        private UploadSession session;
+    }
+}
@@ -0,0 +1,124 @@
+package it.doqui.libra.librabl.business.provider.filestore;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+// Computes a set of digests over the bytes flowing through it, so that a content is hashed
+// while being written instead of being read again afterwards.
+class ContentDigester {
+
+    static final int MIN_BUFFER_SIZE = 8 * 1024;
+    static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private final List<MessageDigest> digests = new ArrayList<>();
+    private long size;
+    private Map<String, String> result;
+
+    ContentDigester(Collection<String> algorithms) {
+        var names = new LinkedHashSet<String>();
+        for (var algorithm : algorithms) {
+            if (names.add(normalize(algorithm))) {
+                try {
+                    digests.add(MessageDigest.getInstance(algorithm.trim()));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalArgumentException("Unsupported digest algorithm " + algorithm, e);
+                }
+            }
+        }
+    }
+
+    static String normalize(String algorithm) {
+        return algorithm.trim().toUpperCase(Locale.ROOT);
+    }
+
+    long copy(InputStream is, OutputStream os) throws IOException {
+        return copy(is, os, Long.MAX_VALUE);
+    }
+
+    // Copies at most limit bytes.
+    // The buffer starts small and doubles while the source keeps filling it,
+    // so that small contents stay cheap and large ones need few system calls.
+    long copy(InputStream is, OutputStream os, long limit) throws IOException {
+        int bufferSize = MIN_BUFFER_SIZE;
+        int available = is.available();
+        while (bufferSize < MAX_BUFFER_SIZE && bufferSize < available) {
+            bufferSize <<= 1;
+        }
+
+        byte[] b = new byte[bufferSize];
+        for (int bytesRead; (bytesRead = is.readNBytes(b, 0, (int) Math.min(b.length, limit - size))) > 0;) {
+            os.write(b, 0, bytesRead);
+            update(b, 0, bytesRead);
+            if (bytesRead == b.length && b.length < MAX_BUFFER_SIZE) {
+                b = new byte[b.length << 1];
+            }
+        }
+
+        os.flush();
+        return size;
+    }
+
+    // Wraps a stream consumed by someone else (e.g. an http entity)
+    InputStream wrap(InputStream is) {
+        return new FilterInputStream(is) {
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c >= 0) {
+                    update(new byte[]{(byte) c}, 0, 1);
+                }
+                return c;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    update(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // skipped bytes must be digested too
+                var b = new byte[(int) Math.min(n, MIN_BUFFER_SIZE)];
+                int r = read(b, 0, b.length);
+                return Math.max(r, 0);
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    Map<String, String> getDigests() {
+        // completing a digest resets it: the values are computed once
+        if (result == null) {
+            var map = new LinkedHashMap<String, String>();
+            for (var md : digests) {
+                map.put(normalize(md.getAlgorithm()), HexFormat.of().formatHex(md.digest()));
+            }
+            result = Collections.unmodifiableMap(map);
+        }
+        return result;
+    }
+
+    private void update(byte[] b, int off, int len) {
+        for (var md : digests) {
+            md.update(b, off, len);
+        }
+        size += len;
+    }
+}
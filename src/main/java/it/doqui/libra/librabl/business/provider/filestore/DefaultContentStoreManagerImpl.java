@@ -12,23 +12,36 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApplicationScoped
 @DefaultBean
 @Slf4j
 public class DefaultContentStoreManagerImpl implements ContentStoreService {
 
-    private static final int BUFFER_SIZE = 4096;
+    private static final String STAGING_DIR = ".staging";
 
     @ConfigProperty(name = "libra.content-store.stores")
     Map<String,String> contentStoreMap;
 
+    @ConfigProperty(name = "libra.content-store.deduplication.stores")
+    Optional<Set<String>> deduplicatedStores;
+
+    @ConfigProperty(name = "libra.content-store.deduplication.algorithm", defaultValue = "SHA-256")
+    String digestAlgorithm;
+
+    @ConfigProperty(name = "libra.content-store.digest.algorithms", defaultValue = "SHA-256")
+    List<String> digestAlgorithms;
+
+    private final Map<Path, RangeDigester> rangeDigesters = new ConcurrentHashMap<>();
+
     private String getStorePath(TenantData d, String name) {
         String value = null;
         if (d != null) {
@@ -118,20 +131,184 @@ public class DefaultContentStoreManagerImpl implements ContentStoreService {
     }
 
     @Override
-    public long writeStream(String contentUrl, InputStream stream) throws IOException {
+    public WrittenContent writeStream(String contentUrl, InputStream stream) throws IOException {
         var p = toPath(contentUrl);
         Files.createDirectories(p.getParent());
+        var digester = newDigester();
         try (var os = Files.newOutputStream(p)) {
-            byte[] b = new byte[BUFFER_SIZE];
-            long size = 0;
-            for (int bytesRead; (bytesRead = stream.read(b)) != -1;) {
-                os.write(b, 0, bytesRead);
-                size += bytesRead;
+            digester.copy(stream, os);
+        }
+
+        return new WrittenContent(digester.getSize(), digester.getDigests());
+    }
+
+    protected ContentDigester newDigester() {
+        return new ContentDigester(digestAlgorithms);
+    }
+
+    @Override
+    public boolean isContentAddressable(String store) {
+        return deduplicatedStores.map(stores -> stores.contains(store)).orElse(false);
+    }
+
+    @Override
+    public Path getStagingPath(String store) throws IOException {
+        var storePath = getStorePath(UserContextManager.getTenantData().orElse(null), store);
+        if (StringUtils.isBlank(storePath)) {
+            throw new RuntimeException("Invalid content store " + store);
+        }
+
+        // staging area lives in the store itself so that the final move is a rename
+        var stagingPath = Paths.get(storePath, STAGING_DIR);
+        Files.createDirectories(stagingPath);
+        return stagingPath;
+    }
+
+    @Override
+    public StagedContent stageStream(String store, String tenant, InputStream stream) throws IOException {
+        var tempPath = Files.createTempFile(getStagingPath(store), null, ".tmp");
+        try {
+            var digester = newAddressingDigester();
+            try (var os = Files.newOutputStream(tempPath)) {
+                digester.copy(stream, os);
             }
 
-            os.flush();
-            return size;
+            return staged(store, tenant, tempPath, digester);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
         }
     }
 
+    @Override
+    public StagedContent stageFile(String store, String tenant, Path file) throws IOException {
+        var digests = rangeDigests(file);
+        if (digests != null) {
+            return staged(store, tenant, file, Files.size(file), digests);
+        }
+
+        var digester = newAddressingDigester();
+        try (var is = Files.newInputStream(file)) {
+            digester.copy(is, OutputStream.nullOutputStream());
+        }
+
+        return staged(store, tenant, file, digester);
+    }
+
+    private ContentDigester newAddressingDigester() {
+        // the addressing digest is computed along with the configured ones
+        return newDigester(digestAlgorithm);
+    }
+
+    private ContentDigester newDigester(String algorithm) {
+        var algorithms = new ArrayList<>(digestAlgorithms);
+        algorithms.add(algorithm);
+        return new ContentDigester(algorithms);
+    }
+
+    private StagedContent staged(String store, String tenant, Path path, ContentDigester digester) {
+        return staged(store, tenant, path, digester.getSize(), digester.getDigests());
+    }
+
+    private StagedContent staged(String store, String tenant, Path path, long size, Map<String, String> digests) {
+        var hash = digests.get(ContentDigester.normalize(digestAlgorithm));
+
+        // format example contentUrl=store://cas/tenant/9f/86/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.bin
+        var contentUrl = String.format("%s://cas/%s/%s/%s/%s.bin",
+            store,
+            tenant,
+            hash.substring(0, 2),
+            hash.substring(2, 4),
+            hash
+        );
+
+        log.debug("Staged content {} as {}", path, contentUrl);
+        return new StagedContent(contentUrl, path, size, digests);
+    }
+
+    @Override
+    public WrittenContent writeRange(Path file, long position, long length, InputStream stream) throws IOException {
+        // the digests of the whole file are computed along with the parts, addressing digest included,
+        // so that committing the file does not read it again
+        var rangeDigester = rangeDigesters.computeIfAbsent(file.toAbsolutePath().normalize(), k -> new RangeDigester(newAddressingDigester()));
+
+        // parts of the same file can be written concurrently, each one through its own channel;
+        // part checksums are SHA-256 digests
+        var digester = newDigester("SHA-256");
+        var complete = false;
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.position(position);
+            digester.copy(rangeDigester.begin(position, stream), Channels.newOutputStream(channel), length);
+            complete = digester.getSize() == length;
+        } finally {
+            rangeDigester.end(file, position, length, complete);
+        }
+
+        return new WrittenContent(digester.getSize(), digester.getDigests());
+    }
+
+    @Override
+    public void discardRanges(Path file) {
+        rangeDigesters.remove(file.toAbsolutePath().normalize());
+    }
+
+    // Returns the digests computed while writing the parts of a file, if they cover all of it
+    private Map<String, String> rangeDigests(Path file) throws IOException {
+        var rangeDigester = rangeDigesters.remove(file.toAbsolutePath().normalize());
+        var digests = rangeDigester == null ? null : rangeDigester.getDigests(Files.size(file));
+        if (digests == null) {
+            log.debug("Digests of {} not computed along with its parts: reading it", file);
+        }
+
+        return digests;
+    }
+
+    @Override
+    public WrittenContent commitFile(String contentUrl, Path file) throws IOException {
+        var size = Files.size(file);
+        var digests = rangeDigests(file);
+        if (digests != null) {
+            // the addressing digest is not part of the configured ones
+            var map = new LinkedHashMap<>(digests);
+            map.keySet().retainAll(digestAlgorithms.stream().map(ContentDigester::normalize).toList());
+            digests = Collections.unmodifiableMap(map);
+        } else {
+            var digester = newDigester();
+            try (var is = Files.newInputStream(file)) {
+                digester.copy(is, OutputStream.nullOutputStream());
+            }
+            digests = digester.getDigests();
+        }
+
+        var p = toPath(contentUrl);
+        Files.createDirectories(p.getParent());
+        try {
+            Files.move(file, p, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.warn("Staged file {} is not in the store of {}: copying", file, contentUrl);
+            Files.move(file, p);
+        }
+
+        return new WrittenContent(size, digests);
+    }
+
+    @Override
+    public boolean commitStaged(StagedContent content) throws IOException {
+        var p = toPath(content.contentUrl());
+        if (Files.exists(p)) {
+            log.debug("Content {} already stored: discarding staged copy", content.contentUrl());
+            Files.deleteIfExists(content.path());
+            return false;
+        }
+
+        Files.createDirectories(p.getParent());
+        try {
+            Files.move(content.path(), p, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(content.path());
+            return false;
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,282 @@
+package it.doqui.libra.librabl.business.provider.filestore;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.doqui.libra.librabl.cache.Cache;
+import it.doqui.libra.librabl.cache.CacheBuilder;
+import it.doqui.libra.librabl.cache.CachePolicy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Read-through disk cache of remote contents.
+// Files are named after the hash of their content url and live in a size-bounded directory whose
+// index is persisted, so the cache survives restarts. Evicted files are deleted in background,
+// once a caller which has just been given their path has had the time to open them.
+@Slf4j
+class ProxyContentCache {
+
+    private static final String INDEX_FILE = "index";
+    private static final String PART_SUFFIX = ".part";
+    private static final String BIN_SUFFIX = ".bin";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    @FunctionalInterface
+    interface Downloader {
+        void download(String contentUrl, Path target) throws IOException;
+    }
+
+    // how long an evicted file outlives its eviction, so that a caller just given its path can open it
+    Duration handoverGrace = Duration.ofMinutes(1);
+
+    private final Path directory;
+    private final long maximumWeight;
+    private final Cache<String, CachedFile> cache;
+    private final Map<String, CachedFile> index = new ConcurrentHashMap<>();
+    private final Set<Path> pendingDeletions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("proxy-cache-%d").setDaemon(true).build());
+
+    ProxyContentCache(Path directory, CacheBuilder<Object, Object> builder, long maximumSize, long maximumWeight, Duration indexFlushInterval) throws IOException {
+        this.directory = directory;
+        this.maximumWeight = maximumWeight;
+        Files.createDirectories(directory);
+
+        builder
+            .executor(executor)
+            .<String, CachedFile>removalListener((key, file, cause) -> {
+                index.remove(key, file);
+                deleteLater(file.path);
+            });
+        if (maximumWeight > 0) {
+            // no frequency admission: a large file just downloaded would overflow the small admission window
+            // and be rejected at once, being downloaded again at every request
+            builder.policy(CachePolicy.TINYLFU).withoutAdmission().maximumWeight(maximumWeight).<String, CachedFile>weigher((key, file) -> file.size);
+        } else {
+            builder.maximumSize(maximumSize);
+        }
+        this.cache = builder.build();
+
+        load();
+        executor.scheduleWithFixedDelay(this::flushIndex, indexFlushInterval.toMillis(), indexFlushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    Path getPath(String contentUrl, Downloader downloader) throws IOException {
+        final var key = keyOf(contentUrl);
+        final var oversized = new Path[1];
+        try {
+            for (int attempt = 0; ; attempt++) {
+                // single flight: concurrent requests of the same url wait for the same download
+                var file = cache.get(key, k -> {
+                    var downloaded = fetch(k, contentUrl, downloader);
+                    if (maximumWeight > 0 && downloaded.size > maximumWeight) {
+                        oversized[0] = downloaded.path;
+                        return null;
+                    }
+
+                    index.put(k, downloaded);
+                    return downloaded;
+                });
+
+                if (file == null) {
+                    break;
+                } else if (Files.exists(file.path)) {
+                    file.accessTime = System.currentTimeMillis();
+                    return file.path;
+                } else if (attempt > 0) {
+                    throw new FileNotFoundException("Unable to cache " + contentUrl + " into " + file.path);
+                }
+
+                log.warn("Cached file {} of {} vanished: downloading again", file.path, contentUrl);
+                cache.remove(key);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // too large to be cached: a temporary copy is served, deleted after the handover grace period
+        var path = oversized[0];
+        if (path == null) {
+            path = fetch(key, contentUrl, downloader).path;
+        }
+        log.warn("Content {} exceeds the proxy cache capacity and will not be cached", contentUrl);
+        var name = path.getFileName().toString();
+        var tmp = path.resolveSibling(name.substring(0, name.length() - BIN_SUFFIX.length()) + TMP_SUFFIX);
+        try {
+            Files.move(path, tmp, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            delete(path);
+            throw e;
+        }
+
+        deleteLater(tmp);
+        return tmp;
+    }
+
+    void remove(String contentUrl) {
+        cache.remove(keyOf(contentUrl));
+    }
+
+    void close() {
+        flushIndex();
+        executor.shutdown();
+        pendingDeletions.forEach(ProxyContentCache::delete);
+    }
+
+    private CachedFile fetch(String key, String contentUrl, Downloader downloader) {
+        // a unique name prevents a pending background deletion from hitting a new copy
+        var name = String.format("%s.%s", key, UUID.randomUUID().toString().replace("-", "").substring(0, 8));
+        var dir = directory.resolve(key.substring(0, 2));
+        var part = dir.resolve(name + PART_SUFFIX);
+        var target = dir.resolve(name + BIN_SUFFIX);
+        try {
+            Files.createDirectories(dir);
+            downloader.download(contentUrl, part);
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            var file = new CachedFile(target, Files.size(target), System.currentTimeMillis());
+            log.info("Cached {} into {} ({} bytes)", contentUrl, target, file.size);
+            return file;
+        } catch (IOException e) {
+            delete(part);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            delete(part);
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        var known = readIndex();
+        var files = new ArrayList<Map.Entry<String, CachedFile>>();
+        try (Stream<Path> stream = Files.walk(directory, 2)) {
+            stream.filter(Files::isRegularFile).forEach(p -> {
+                var fileName = p.getFileName().toString();
+                if (fileName.endsWith(PART_SUFFIX) || fileName.endsWith(TMP_SUFFIX)) {
+                    // interrupted download or uncached copy left by a crash
+                    delete(p);
+                } else if (fileName.endsWith(BIN_SUFFIX) && fileName.indexOf('.') > 0) {
+                    var key = fileName.substring(0, fileName.indexOf('.'));
+                    try {
+                        var entry = known.get(key);
+                        var accessTime = entry != null && entry.path.getFileName().toString().equals(fileName)
+                            ? entry.accessTime
+                            : Files.getLastModifiedTime(p).toMillis();
+                        files.add(Map.entry(key, new CachedFile(p, Files.size(p), accessTime)));
+                    } catch (IOException e) {
+                        log.warn("Unable to read cached file {}: {}", p, e.getMessage());
+                    }
+                }
+            });
+        }
+
+        // least recently used first, so that the policy starts from the previous recency order
+        files.sort(Comparator.comparingLong(e -> e.getValue().accessTime));
+        for (var e : files) {
+            // a stale copy of the same url is replaced and deleted by the removal listener
+            index.put(e.getKey(), e.getValue());
+            cache.put(e.getKey(), e.getValue());
+        }
+
+        log.info("Proxy content cache {} loaded with {} files", directory, cache.size());
+    }
+
+    private Map<String, CachedFile> readIndex() {
+        var result = new HashMap<String, CachedFile>();
+        var indexPath = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexPath)) {
+            return result;
+        }
+
+        try (var lines = Files.lines(indexPath, StandardCharsets.UTF_8)) {
+            lines.map(line -> line.split("\t")).filter(a -> a.length == 4).forEach(a -> {
+                try {
+                    result.put(a[0], new CachedFile(directory.resolve(a[1]), Long.parseLong(a[2]), Long.parseLong(a[3])));
+                } catch (NumberFormatException | InvalidPathException e) {
+                    // skip corrupted line
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Unable to read proxy cache index {}: {}", indexPath, e.getMessage());
+        }
+
+        return result;
+    }
+
+    private synchronized void flushIndex() {
+        var indexPath = directory.resolve(INDEX_FILE);
+        var tempPath = directory.resolve(INDEX_FILE + ".tmp");
+        try (var writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (var e : index.entrySet()) {
+                var file = e.getValue();
+                writer.write(String.format("%s\t%s\t%d\t%d%n", e.getKey(), directory.relativize(file.path), file.size, file.accessTime));
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write proxy cache index {}: {}", tempPath, e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Proxy cache index {} written with {} entries", indexPath, index.size());
+        } catch (IOException e) {
+            log.warn("Unable to replace proxy cache index {}: {}", indexPath, e.getMessage());
+        }
+    }
+
+    private void deleteLater(Path path) {
+        pendingDeletions.add(path);
+        try {
+            executor.schedule(() -> {
+                delete(path);
+                pendingDeletions.remove(path);
+            }, handoverGrace.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            delete(path);
+            pendingDeletions.remove(path);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            if (path != null && Files.deleteIfExists(path)) {
+                log.debug("Deleted cached file {}", path);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to delete cached file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String keyOf(String contentUrl) {
+        try {
+            var md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(contentUrl.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedFile {
+        private final Path path;
+        private final long size;
+        private volatile long accessTime;
+
+        CachedFile(Path path, long size, long accessTime) {
+            this.path = path;
+            this.size = size;
+            this.accessTime = accessTime;
+        }
+    }
+}
@@ -4,11 +4,16 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.service.auth.UserContextManager;
 import it.doqui.libra.librabl.business.service.interfaces.ContentStoreService;
-import it.doqui.libra.librabl.cache.LRUCache;
+import it.doqui.libra.librabl.cache.Cache;
 import it.doqui.libra.librabl.foundation.exceptions.SystemException;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.MediaType;
 import lombok.Getter;
@@ -18,6 +23,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.InputStreamEntity;
@@ -27,7 +33,6 @@ import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,6 +42,8 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.interfaces.RSAPrivateKey;
@@ -45,15 +52,16 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @ApplicationScoped
 @IfBuildProperty(name = "proxy.store.enabled", stringValue = "true")
 @Slf4j
 public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl implements ContentStoreService {
 
-    private final LRUCache<String,Path> cache = new LRUCache<>(1000);
-
     @ConfigProperty(name = "proxy.store.url")
     String remoteStoreUrl;
 
@@ -69,43 +77,196 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
     @ConfigProperty(name = "proxy.store.privateKey.path", defaultValue = "./privateKey.pem")
     String privateKeyPath;
 
+    @ConfigProperty(name = "proxy.store.privateKey.check-interval", defaultValue = "30s")
+    Duration privateKeyCheckInterval;
+
+    @ConfigProperty(name = "proxy.store.token.time-to-live", defaultValue = "10m")
+    Duration tokenTimeToLive;
+
+    @ConfigProperty(name = "proxy.store.token.renew-before", defaultValue = "2m")
+    Duration tokenRenewBefore;
+
+    @ConfigProperty(name = "proxy.store.http.max-total", defaultValue = "50")
+    int httpMaxTotal;
+
+    @ConfigProperty(name = "proxy.store.http.max-per-route", defaultValue = "50")
+    int httpMaxPerRoute;
+
+    @ConfigProperty(name = "proxy.store.http.connect-timeout", defaultValue = "10s")
+    Duration httpConnectTimeout;
+
+    @ConfigProperty(name = "proxy.store.http.socket-timeout", defaultValue = "5m")
+    Duration httpSocketTimeout;
+
+    @ConfigProperty(name = "proxy.store.http.connection-request-timeout", defaultValue = "30s")
+    Duration httpConnectionRequestTimeout;
+
+    @ConfigProperty(name = "proxy.store.http.idle-timeout", defaultValue = "1m")
+    Duration httpIdleTimeout;
+
+    @ConfigProperty(name = "proxy.store.cache.size", defaultValue = "1000")
+    int cacheSize;
+
+    @ConfigProperty(name = "proxy.store.cache.max-disk-size")
+    Optional<MemorySize> cacheMaxDiskSize;
+
+    @ConfigProperty(name = "proxy.store.cache.path")
+    Optional<String> cachePath;
+
+    @ConfigProperty(name = "proxy.store.cache.index-flush-interval", defaultValue = "1m")
+    Duration cacheIndexFlushInterval;
+
+    @ConfigProperty(name = "proxy.store.staging.path")
+    Optional<String> stagingPath;
+
     @Inject
     ObjectMapper objectMapper;
 
-    private final CloseableHttpClient httpClient;
+    @Inject
+    CacheManager cacheManager;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private ProxyContentCache cache;
+    private Cache<String,String> tokenCache;
+    private volatile SigningKey signingKey;
+
+    @PostConstruct
+    void init() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(httpMaxTotal);
+        connectionManager.setDefaultMaxPerRoute(httpMaxPerRoute);
+        connectionManager.setValidateAfterInactivity(1000);
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout((int) httpConnectTimeout.toMillis())
+                .setSocketTimeout((int) httpSocketTimeout.toMillis())
+                .setConnectionRequestTimeout((int) httpConnectionRequestTimeout.toMillis())
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(httpIdleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+
+        // a token is reused by the same subject until it is close to its expiration
+        var tokenReuse = tokenTimeToLive.minus(tokenRenewBefore);
+        if (tokenReuse.isZero() || tokenReuse.isNegative()) {
+            throw new SystemException(String.format("Invalid proxy store token settings: renew-before %s must be shorter than time-to-live %s",
+                tokenRenewBefore, tokenTimeToLive));
+        }
 
-    public ProxyContentStoreManagerImpl() {
-        PoolingHttpClientConnectionManager poolingConnManager = new PoolingHttpClientConnectionManager();
-        poolingConnManager.setMaxTotal(10);
-        poolingConnManager.setDefaultMaxPerRoute(10);
+        tokenCache = cacheManager.newBuilder("proxy.store.tokens")
+            .maximumSize(1000)
+            .expireAfterWrite(tokenReuse)
+            .build();
 
-        httpClient = HttpClients.custom().setConnectionManager(poolingConnManager).build();
+        var path = cachePath
+            .map(Path::of)
+            .orElseGet(() -> Path.of(System.getProperty("java.io.tmpdir"), "libra-proxy-cache"));
+        try {
+            cache = new ProxyContentCache(
+                path,
+                cacheManager.newBuilder("proxy.store"),
+                cacheSize,
+                cacheMaxDiskSize.map(MemorySize::asLongValue).orElse(0L),
+                cacheIndexFlushInterval);
+        } catch (IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        // cached files are kept: the index is persisted to be reloaded at the next start
+        cache.close();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Unable to close the proxy store http client: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        var pool = connectionManager.getTotalStats();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("leased", pool.getLeased());
+        result.put("pending", pool.getPending());
+        result.put("available", pool.getAvailable());
+        result.put("max", pool.getMax());
+        result.put("cachedTokens", tokenCache.size());
+        Optional.ofNullable(signingKey).ifPresent(k -> result.put("keyLoadedAt", k.loadedAt().toString()));
+        return result;
     }
 
     private void fillSecurityHeaders(HttpRequestBase req) {
         sharedSec.ifPresent(s -> req.setHeader("X-Shared-Sec", s));
 
-        try {
-            var algorithm = Algorithm.RSA256(null, (RSAPrivateKey) getPrivateKey(Path.of(privateKeyPath)));
-            var token = JWT.create()
-                .withIssuer(issuer)
-                .withKeyId(kid)
-                .withIssuedAt(Instant.now().minus(Duration.of(10, ChronoUnit.MINUTES)))
-                .withExpiresAt(Instant.now().plus(Duration.of(10, ChronoUnit.MINUTES)))
-                .withSubject(UserContextManager.getContext().getAuthorityRef().toString())
-                .sign(algorithm);
-
-            log.debug("Sending token {}", token);
-            req.setHeader("X-Authorization", "Bearer " + token);
-        } catch (RuntimeException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        // a changed key drops the cached tokens before any of them is sent
+        var key = getSigningKey();
+        var subject = UserContextManager.getContext().getAuthorityRef().toString();
+        var token = tokenCache.get(subject, s -> createToken(s, key));
+        req.setHeader("X-Authorization", "Bearer " + token);
+
+        var pool = connectionManager.getTotalStats();
+        if (pool.getPending() > 0) {
+            log.debug("Proxy store connection pool exhausted: {}", pool);
+        }
+    }
+
+    private String createToken(String subject, SigningKey key) {
+        var now = Instant.now();
+        var token = JWT.create()
+            .withIssuer(issuer)
+            .withKeyId(kid)
+            .withIssuedAt(now.minus(Duration.of(10, ChronoUnit.MINUTES)))
+            .withExpiresAt(now.plus(tokenTimeToLive))
+            .withSubject(subject)
+            .sign(key.algorithm());
+
+        log.debug("Created token for {}", subject);
+        return token;
+    }
+
+    private SigningKey getSigningKey() {
+        var key = signingKey;
+        var now = Instant.now();
+        if (key != null && now.isBefore(key.checkedAt().plus(privateKeyCheckInterval))) {
+            return key;
+        }
+
+        synchronized (this) {
+            key = signingKey;
+            if (key != null && now.isBefore(key.checkedAt().plus(privateKeyCheckInterval))) {
+                return key;
+            }
+
+            var path = Path.of(privateKeyPath);
+            try {
+                var lastModified = Files.getLastModifiedTime(path);
+                if (key != null && key.lastModified().equals(lastModified)) {
+                    key = new SigningKey(key.algorithm(), lastModified, key.loadedAt(), now);
+                } else {
+                    log.info("Loading proxy store private key from {}", path);
+                    var algorithm = Algorithm.RSA256(null, (RSAPrivateKey) getPrivateKey(path));
+                    key = new SigningKey(algorithm, lastModified, now, now);
+                    if (signingKey != null) {
+                        // tokens signed with the previous key are no longer issued
+                        tokenCache.clear();
+                    }
+                }
+
+                signingKey = key;
+                return key;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
     private PrivateKey getPrivateKey(Path keyPath) throws Exception {
-        var sb = new StringBuffer();
+        var sb = new StringBuilder();
         try (var reader = Files.newBufferedReader(keyPath)) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -121,6 +282,9 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
         return kf.generatePrivate(spec);
     }
 
+    private record SigningKey(Algorithm algorithm, FileTime lastModified, Instant loadedAt, Instant checkedAt) {
+    }
+
     @Override
     public Path getPath(String contentUrl) throws IOException {
         try {
@@ -132,12 +296,10 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
             throw new RuntimeException(e);
         }
 
-        var path = cache.get(contentUrl);
-        if (path.isPresent()) {
-            log.debug("Found cached temp path {}", path.get());
-            return path.get();
-        }
+        return cache.getPath(contentUrl, this::download);
+    }
 
+    private void download(String contentUrl, Path target) throws IOException {
         log.info("Retrieving url {}", contentUrl);
         try {
             URI uri = new URIBuilder(remoteStoreUrl)
@@ -159,19 +321,12 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
                         throw new RuntimeException("Remote Content Store returned an empty response");
                     }
 
-                    Path tempPath = Files.createTempFile("ecm-", null);
-                    try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
-                        int b;
-                        while ((b = entity.getContent().read()) != -1) {
-                            out.write(b);
+                    try (var is = entity.getContent()) {
+                        long size = Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+                        if (entity.getContentLength() >= 0 && size != entity.getContentLength()) {
+                            throw new IOException(String.format("Truncated download of %s: %d of %d bytes", contentUrl, size, entity.getContentLength()));
                         }
-                        out.flush();
                     }
-
-                    tempPath.toFile().deleteOnExit();
-                    log.info("Created temporary file {}", tempPath);
-                    cache.put(contentUrl, tempPath);
-                    return tempPath;
                 } finally {
                     EntityUtils.consume(response.getEntity());
                 }
@@ -184,6 +339,7 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
     @Override
     public void delete(String contentUrl) throws IOException {
         log.info("Deleting url {}", contentUrl);
+        cache.remove(contentUrl);
         try {
             var req = new HttpDelete(new URIBuilder(remoteStoreUrl + "/" + URLEncoder.encode(contentUrl, StandardCharsets.UTF_8)).build());
             fillSecurityHeaders(req);
@@ -203,16 +359,56 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
     }
 
     @Override
-    public long writeStream(String contentUrl, InputStream stream) throws IOException {
+    public boolean isContentAddressable(String store) {
+        // remote stores are written through the proxy and cannot be deduplicated locally
+        return StringUtils.equals(store, "local") && super.isContentAddressable(store);
+    }
+
+    @Override
+    public Path getStagingPath(String store) throws IOException {
+        if (StringUtils.equals(store, "local")) {
+            return super.getStagingPath(store);
+        }
+
+        // contents of remote stores are staged locally and uploaded on commit
+        var path = stagingPath
+            .map(Path::of)
+            .orElseGet(() -> Path.of(System.getProperty("java.io.tmpdir"), "libra-proxy-staging"))
+            .resolve(store);
+        Files.createDirectories(path);
+        return path;
+    }
+
+    @Override
+    public WrittenContent commitFile(String contentUrl, Path file) throws IOException {
+        if (isLocal(contentUrl)) {
+            return super.commitFile(contentUrl, file);
+        }
+
+        WrittenContent result;
+        try (var is = Files.newInputStream(file)) {
+            result = writeStream(contentUrl, is);
+        }
+
+        Files.deleteIfExists(file);
+        return result;
+    }
+
+    private boolean isLocal(String contentUrl) {
         try {
             URI uri = new URI(contentUrl);
             String path = contentStoreMap.get(uri.getScheme());
-            if (StringUtils.isNotBlank(path) && StringUtils.equals(uri.getScheme(), "local")) {
-                return super.writeStream(contentUrl, stream);
-            }
+            return StringUtils.isNotBlank(path) && StringUtils.equals(uri.getScheme(), "local");
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    @Override
+    public WrittenContent writeStream(String contentUrl, InputStream stream) throws IOException {
+        if (isLocal(contentUrl)) {
+            return super.writeStream(contentUrl, stream);
+        }
 
         log.info("Writing to url {} using {}", contentUrl, UserContextManager.getContext().getAuthorityRef());
         try {
@@ -221,7 +417,9 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
             req.setHeader("Content-type", MediaType.APPLICATION_OCTET_STREAM);
             fillSecurityHeaders(req);
 
-            req.setEntity(new InputStreamEntity(stream));
+            // digests are computed on the bytes sent to the remote store
+            var digester = newDigester();
+            req.setEntity(new InputStreamEntity(digester.wrap(stream)));
 
             ResponseHandler<String> responseHandler = response -> {
                 int status = response.getStatusLine().getStatusCode();
@@ -235,7 +433,11 @@ public class ProxyContentStoreManagerImpl extends DefaultContentStoreManagerImpl
 
             var responseBody = httpClient.execute(req, responseHandler);
             var responseObj = objectMapper.readValue(responseBody, WriteResponse.class);
-            return responseObj.getSize();
+            if (responseObj.getSize() != digester.getSize()) {
+                throw new IOException(String.format("Remote store wrote %d bytes of %d", responseObj.getSize(), digester.getSize()));
+            }
+
+            return new WrittenContent(responseObj.getSize(), digester.getDigests());
 
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
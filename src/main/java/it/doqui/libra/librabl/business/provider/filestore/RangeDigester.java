@@ -0,0 +1,103 @@
+package it.doqui.libra.librabl.business.provider.filestore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Computes the digests of a file written by ranges, possibly out of order and concurrently.
+// The range starting where the digested prefix ends is digested while being written;
+// ranges written ahead of it are read back once, as soon as the prefix reaches them.
+// Rewriting a range already digested invalidates the digests, which are then computed again from the file.
+class RangeDigester {
+
+    private final ContentDigester digester;
+    private final TreeMap<Long, Long> written = new TreeMap<>();
+    private final Set<Long> writing = new HashSet<>();
+    private long digested;
+    private boolean streaming;
+    private boolean invalid;
+
+    RangeDigester(ContentDigester digester) {
+        this.digester = digester;
+    }
+
+    // Returns the stream to write the range from
+    synchronized InputStream begin(long position, InputStream stream) {
+        if (invalid) {
+            return stream;
+        }
+
+        if (position < digested || written.containsKey(position) || writing.contains(position) || (streaming && position == digested)) {
+            invalid = true;
+            return stream;
+        }
+
+        if (position == digested && !streaming) {
+            streaming = true;
+            return digester.wrap(stream);
+        }
+
+        writing.add(position);
+        return stream;
+    }
+
+    // Completes a range begun at position: a range is complete when all of its length has been written
+    synchronized void end(Path file, long position, long length, boolean complete) throws IOException {
+        if (invalid) {
+            return;
+        }
+
+        if (streaming && position == digested) {
+            streaming = false;
+            if (!complete) {
+                // the digests have consumed a part of the range only
+                invalid = true;
+                return;
+            }
+
+            digested += length;
+        } else {
+            writing.remove(position);
+            if (complete) {
+                written.put(position, length);
+            }
+        }
+
+        if (!streaming && written.containsKey(digested)) {
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (Long next; !streaming && (next = written.remove(digested)) != null;) {
+                    channel.position(digested);
+                    var is = Channels.newInputStream(channel);
+                    var before = digester.getSize();
+                    digester.copy(is, OutputStream.nullOutputStream(), before + next);
+                    if (digester.getSize() - before != next) {
+                        invalid = true;
+                        return;
+                    }
+
+                    digested += next;
+                }
+            } catch (IOException e) {
+                invalid = true;
+                throw e;
+            }
+        }
+    }
+
+    // Returns the digests of the whole file, or null when some of its bytes have not been digested
+    synchronized Map<String, String> getDigests(long size) {
+        if (invalid || streaming || !writing.isEmpty() || digested != size) {
+            return null;
+        }
+
+        return digester.getDigests();
+    }
+}
@@ -7,6 +7,7 @@ import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
 import it.doqui.libra.librabl.foundation.exceptions.PreconditionFailedException;
 import it.doqui.libra.librabl.foundation.exceptions.SystemException;
 import it.doqui.libra.librabl.foundation.exceptions.WebException;
+import it.doqui.libra.librabl.utils.IOUtils;
 import it.doqui.libra.librabl.utils.ObjectUtils;
 import it.doqui.libra.librabl.views.schema.CustomModelSchema;
 import it.doqui.libra.librabl.views.schema.IndexableProperty;
@@ -34,7 +35,6 @@ import org.w3c.dom.Element;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.*;
@@ -648,15 +648,9 @@ public class SolrManager extends AbstractSolrController {
             return;
         }
 
-        try (FileInputStream fis = new FileInputStream(fileToZip)) {
-            ZipEntry zipEntry = new ZipEntry(fileName);
-            zipOut.putNextEntry(zipEntry);
-            byte[] bytes = new byte[1024];
-            int length;
-            while ((length = fis.read(bytes)) >= 0) {
-                zipOut.write(bytes, 0, length);
-            }
-        }
+        ZipEntry zipEntry = new ZipEntry(fileName);
+        zipOut.putNextEntry(zipEntry);
+        IOUtils.transfer(fileToZip.toPath(), zipOut);
     }
 
     @Getter
@@ -3,6 +3,7 @@ package it.doqui.libra.librabl.business.provider.management;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.doqui.libra.librabl.business.provider.boot.BootEvent;
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.provider.configure.AsyncConfig;
 import it.doqui.libra.librabl.business.provider.data.dao.NodeDAO;
 import it.doqui.libra.librabl.business.provider.data.entities.ActiveNode;
@@ -15,8 +16,10 @@ import it.doqui.libra.librabl.business.provider.security.AuthenticationManager;
 import it.doqui.libra.librabl.business.service.async.AsyncOperationService;
 import it.doqui.libra.librabl.business.service.async.FeedbackAsyncOperation;
 import it.doqui.libra.librabl.business.service.auth.UserContextManager;
+import it.doqui.libra.librabl.business.service.interfaces.ContentStoreService;
 import it.doqui.libra.librabl.business.service.interfaces.ManagementService;
 import it.doqui.libra.librabl.business.service.interfaces.ReindexService;
+import it.doqui.libra.librabl.cache.CacheStats;
 import it.doqui.libra.librabl.foundation.TenantRef;
 import it.doqui.libra.librabl.foundation.async.AsyncOperation;
 import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
@@ -82,6 +85,12 @@ public class ManagementServiceImpl implements ManagementService {
     @Inject
     TenantDataManager tenantDataManager;
 
+    @Inject
+    CacheManager cacheManager;
+
+    @Inject
+    ContentStoreService contentStoreService;
+
     private BootEvent bootEvent;
 
     void onStart(@Observes BootEvent ev) {
@@ -232,6 +241,21 @@ public class ManagementServiceImpl implements ManagementService {
         return asyncOperationService.getTask(taskId);
     }
 
+    @Override
+    public Map<String, CacheStats> getCacheStats() {
+        return cacheManager.getStats();
+    }
+
+    @Override
+    public Optional<CacheStats> getCacheStats(String name) {
+        return cacheManager.getStats(name);
+    }
+
+    @Override
+    public Map<String, Object> getContentStoreStats() {
+        return contentStoreService.getStats();
+    }
+
     private void performOperation(MgmtOperation operation) {
         switch (operation.getOp()) {
             case REINDEX: {
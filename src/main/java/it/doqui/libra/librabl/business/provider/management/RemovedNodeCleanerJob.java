@@ -2,6 +2,7 @@ package it.doqui.libra.librabl.business.provider.management;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import io.quarkus.arc.Unremovable;
 import it.doqui.libra.librabl.business.provider.data.dao.AbstractDAO;
 import it.doqui.libra.librabl.business.provider.data.entities.NodeData;
@@ -17,12 +18,16 @@ import jakarta.jms.JMSException;
 import jakarta.jms.Message;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
 
 @ApplicationScoped
 @Slf4j
@@ -35,6 +40,9 @@ public class RemovedNodeCleanerJob extends AbstractDAO implements MessageHandler
     @Inject
     ContentStoreService contentStoreService;
 
+    @ConfigProperty(name = "libra.removed-node-cleaner.batch-size", defaultValue = "100")
+    int batchSize;
+
     @Override
     public void handleMessage(Message message) throws JMSException {
         var uuids = ObjectUtils.getAsStrings(message.getStringProperty("uuids"));
@@ -104,36 +112,65 @@ public class RemovedNodeCleanerJob extends AbstractDAO implements MessageHandler
             }
         });
 
-        var removableFileEntries = new ArrayList<String>();
-        for (var item : items) {
-            try {
-                contentStoreService.delete(item);
-                removableFileEntries.add(item);
-            } catch (Exception e) {
-                log.error("Unable to delete content file {}: {}", item, e.getMessage());
-            }
-        }
-
         var count = 0;
-        if (!removableFileEntries.isEmpty()) {
-            count = DBUtils.transactionCall(ds, UserContextManager.getContext().getDbSchema(), conn -> {
-                var sql = """
-                    delete from ecm_files\s
-                    where tenant = ? and contentref = any(?) and counter < 1
-                    """;
-                try (var stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, UserContextManager.getTenant());
-                    stmt.setArray(2, conn.createArrayOf("VARCHAR", removableFileEntries.toArray(new String[0])));
-                    return stmt.executeUpdate();
-                } catch (SQLException e) {
-                    throw new SystemException(e);
-                }
-            });
+        for (var page : Lists.partition(new ArrayList<>(new TreeSet<>(items)), batchSize)) {
+            count += DBUtils.transactionCall(ds, UserContextManager.getContext().getDbSchema(), conn -> removeFiles(conn, page));
         }
 
         log.info("{} file entries removed from tenant {}", count, UserContextManager.getTenant());
     }
 
+    // The files of a page are deleted while holding their row locks: a concurrent upload of the same
+    // content-addressed file either waits for the removal or keeps the file alive. Rows locked by another
+    // transaction are skipped rather than waited for, their files being kept.
+    private int removeFiles(Connection conn, List<String> contentRefs) {
+        var lockSql = """
+            select contentref from ecm_files\s
+            where tenant = ? and contentref = any(?) and counter < 1\s
+            for update skip locked
+            """;
+        var deleteSql = """
+            delete from ecm_files\s
+            where tenant = ? and contentref = any(?) and counter < 1
+            """;
+        try {
+            var removed = new ArrayList<String>();
+            var locked = 0;
+            try (var stmt = conn.prepareStatement(lockSql)) {
+                stmt.setString(1, UserContextManager.getTenant());
+                stmt.setArray(2, conn.createArrayOf("VARCHAR", contentRefs.toArray(new String[0])));
+                try (var rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        locked++;
+                        var item = rs.getString("contentref");
+                        try {
+                            contentStoreService.delete(item);
+                            removed.add(item);
+                        } catch (Exception e) {
+                            log.error("Unable to delete content file {}: {}", item, e.getMessage());
+                        }
+                    }
+                }
+            }
+
+            if (locked < contentRefs.size()) {
+                log.debug("{} content files referenced again or in use: not removed", contentRefs.size() - locked);
+            }
+
+            if (removed.isEmpty()) {
+                return 0;
+            }
+
+            try (var stmt = conn.prepareStatement(deleteSql)) {
+                stmt.setString(1, UserContextManager.getTenant());
+                stmt.setArray(2, conn.createArrayOf("VARCHAR", removed.toArray(new String[0])));
+                return stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new SystemException(e);
+        }
+    }
+
     @Override
     public boolean requireTenant() {
         return true;
@@ -3,9 +3,11 @@ package it.doqui.libra.librabl.business.provider.mimetypes;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import io.agroal.api.AgroalDataSource;
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.provider.integration.messaging.events.CleanCacheEvent;
 import it.doqui.libra.librabl.business.service.interfaces.ManagementService;
 import it.doqui.libra.librabl.business.service.interfaces.MimeTypeService;
+import it.doqui.libra.librabl.cache.StatsCounter;
 import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
 import it.doqui.libra.librabl.foundation.exceptions.NotFoundException;
 import it.doqui.libra.librabl.foundation.exceptions.SystemException;
@@ -36,6 +38,7 @@ import static it.doqui.libra.librabl.business.provider.integration.messaging.eve
 public class MimeTypeManager implements MimeTypeService {
 
     private final AtomicReference<MimetypeCache> mimetypeCache = new AtomicReference<>();
+    private final StatsCounter mimetypeStats = new StatsCounter();
 
     @Inject
     @SuppressWarnings("CdiInjectionPointsInspection")
@@ -47,14 +50,25 @@ public class MimeTypeManager implements MimeTypeService {
     @Inject
     ManagementService managementService;
 
+    @Inject
+    CacheManager cacheManager;
+
     @PostConstruct
     void init() {
         onStart(new CleanCacheEvent());
+        cacheManager.register("mimetypes", () -> mimetypeStats.snapshot(Optional.ofNullable(mimetypeCache.get()).map(m -> m.size).orElse(0L)));
     }
 
     synchronized void onStart(@Observes CleanCacheEvent ev) {
         var m = new MimetypeCache();
-        m.load();
+        long t0 = System.nanoTime();
+        try {
+            m.load();
+        } catch (RuntimeException e) {
+            mimetypeStats.recordLoadFailure(System.nanoTime() - t0);
+            throw e;
+        }
+        mimetypeStats.recordLoadSuccess(System.nanoTime() - t0);
         this.mimetypeCache.set(m);
         log.info("Mimetype Cache updated with {} entries", m.size);
     }
@@ -236,7 +250,13 @@ public class MimeTypeManager implements MimeTypeService {
         }
 
         if (map != null) {
-            result.addAll(map.get(key.toLowerCase()));
+            var items = map.get(key.toLowerCase());
+            if (items.isEmpty()) {
+                mimetypeStats.recordMisses(1);
+            } else {
+                mimetypeStats.recordHits(1);
+            }
+            result.addAll(items);
         } else {
             result.addAll(m.mapByMimetype.values());
         }
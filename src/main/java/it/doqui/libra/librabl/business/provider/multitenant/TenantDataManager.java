@@ -3,7 +3,9 @@ package it.doqui.libra.librabl.business.provider.multitenant;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.agroal.api.AgroalDataSource;
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.provider.integration.messaging.events.CleanCacheEvent;
+import it.doqui.libra.librabl.cache.StatsCounter;
 import it.doqui.libra.librabl.foundation.exceptions.NotFoundException;
 import it.doqui.libra.librabl.foundation.exceptions.PreconditionFailedException;
 import it.doqui.libra.librabl.foundation.exceptions.SystemException;
@@ -13,6 +15,7 @@ import it.doqui.libra.librabl.utils.ObjectUtils;
 import it.doqui.libra.librabl.utils.SQLScriptUtils;
 import it.doqui.libra.librabl.views.tenant.TenantData;
 import it.doqui.libra.librabl.views.tenant.TenantSpace;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
@@ -55,7 +58,16 @@ public class TenantDataManager {
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    CacheManager cacheManager;
+
     private final ConcurrentHashMap<String, TenantSpace> tenantMap = new ConcurrentHashMap<>();
+    private final StatsCounter tenantStats = new StatsCounter();
+
+    @PostConstruct
+    void init() {
+        cacheManager.register("tenant.spaces", () -> tenantStats.snapshot(tenantMap.size()));
+    }
 
     void onStart(@Observes CleanCacheEvent ev) {
         cleanCache();
@@ -480,9 +492,12 @@ public class TenantDataManager {
         final var tenantName = StringUtils.stripToEmpty(name).toLowerCase();
         TenantSpace t = tenantMap.get(tenantName);
         if (t != null) {
+            tenantStats.recordHits(1);
             return Optional.of(t);
         }
 
+        tenantStats.recordMisses(1);
+        final long t0 = System.nanoTime();
         return DBUtils.call(ds, masterSchema, conn -> {
             try {
                 final var sql = """
@@ -494,10 +509,12 @@ public class TenantDataManager {
                     stmt.setString(1, tenantName);
                     try (var rs = stmt.executeQuery()) {
                         if (!rs.next()) {
+                            tenantStats.recordLoadFailure(System.nanoTime() - t0);
                             return Optional.empty();
                         }
 
                         var tenantSpace = read(rs);
+                        tenantStats.recordLoadSuccess(System.nanoTime() - t0);
                         if (tenantSpace.isValid()) {
                             tenantMap.put(tenantName, tenantSpace);
                         }
@@ -506,6 +523,7 @@ public class TenantDataManager {
                     }
                 }
             } catch (SQLException | JsonProcessingException e) {
+                tenantStats.recordLoadFailure(System.nanoTime() - t0);
                 throw new SystemException(e);
             }
         });
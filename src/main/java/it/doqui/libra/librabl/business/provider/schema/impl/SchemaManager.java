@@ -1,12 +1,15 @@
 package it.doqui.libra.librabl.business.provider.schema.impl;
 
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.service.auth.UserContextManager;
 import it.doqui.libra.librabl.business.service.schema.ModelItem;
+import it.doqui.libra.librabl.cache.StatsCounter;
 import it.doqui.libra.librabl.foundation.TenantRef;
 import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
 import it.doqui.libra.librabl.foundation.exceptions.ForbiddenException;
 import it.doqui.libra.librabl.views.schema.CustomModelSchema;
 import it.doqui.libra.librabl.views.schema.ModelNamespace;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +27,7 @@ import static it.doqui.libra.librabl.business.provider.schema.impl.TenantSchema.
 public class SchemaManager {
 
     private final Map<String, TenantSchema> tenants = new ConcurrentHashMap<>();
+    private final StatsCounter tenantStats = new StatsCounter();
 
     @ConfigProperty(name = "libra.boot.schema-validation", defaultValue = "false")
     boolean validationOnLoad;
@@ -40,13 +44,27 @@ public class SchemaManager {
     @Inject
     SchemaProcessor schemaProcessor;
 
+    @Inject
+    CacheManager cacheManager;
+
+    @PostConstruct
+    void init() {
+        cacheManager.register("schema.tenants", () -> tenantStats.snapshot(tenants.size()));
+    }
+
     public void createTenantSchemaIfRequired(String tenant, String schema) {
         var t = loadTenant(TenantRef.valueOf(tenant), schema);
         tenants.putIfAbsent(tenant, t);
     }
 
     public TenantSchema getTenantSchema(String tenant) {
-        return tenants.get(tenant);
+        var schema = tenants.get(tenant);
+        if (schema != null) {
+            tenantStats.recordHits(1);
+        } else {
+            tenantStats.recordMisses(1);
+        }
+        return schema;
     }
 
     public void setTenantSchema(String tenant, TenantSchema schema) {
@@ -125,7 +143,9 @@ public class SchemaManager {
     }
 
     public TenantSchema loadTenant(TenantRef tenantRef, String dbSchema, boolean includeAny) {
-        TenantSchema commonSchema = getTenantSchema(COMMON_SCHEMA);
+        long t0 = System.nanoTime();
+        // internal lookup: not counted in the cache statistics
+        TenantSchema commonSchema = tenants.get(COMMON_SCHEMA);
         TenantSchema tenantSchema = new TenantSchema();
         tenantSchema.setTenant(tenantRef.toString());
         loadSchema(tenantRef, dbSchema, true, includeAny)
@@ -161,6 +181,7 @@ public class SchemaManager {
         }
 
         setTenantSchema(tenantSchema.getTenant(), tenantSchema);
+        tenantStats.recordLoadSuccess(System.nanoTime() - t0);
         return tenantSchema;
     }
 
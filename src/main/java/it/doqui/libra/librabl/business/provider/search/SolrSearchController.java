@@ -1,5 +1,6 @@
 package it.doqui.libra.librabl.business.provider.search;
 
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.provider.data.dao.PathDAO;
 import it.doqui.libra.librabl.business.provider.integration.solr.AbstractSolrController;
 import it.doqui.libra.librabl.business.provider.schema.ModelManager;
@@ -10,14 +11,14 @@ import it.doqui.libra.librabl.business.service.interfaces.SearchService;
 import it.doqui.libra.librabl.business.service.node.QueryScope;
 import it.doqui.libra.librabl.business.service.node.SortDefinition;
 import it.doqui.libra.librabl.business.service.schema.ModelSchema;
-import it.doqui.libra.librabl.cache.LRUCache;
-import it.doqui.libra.librabl.foundation.Expirable;
+import it.doqui.libra.librabl.cache.Cache;
 import it.doqui.libra.librabl.foundation.Pageable;
 import it.doqui.libra.librabl.foundation.Paged;
 import it.doqui.libra.librabl.foundation.PrefixedQName;
 import it.doqui.libra.librabl.foundation.exceptions.BadQueryException;
 import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
 import it.doqui.libra.librabl.foundation.exceptions.LimitExceededException;
+import it.doqui.libra.librabl.foundation.exceptions.SystemException;
 import it.doqui.libra.librabl.views.node.MapOption;
 import it.doqui.libra.librabl.views.node.NodeItem;
 import it.doqui.libra.librabl.views.schema.CustomModelSchema;
@@ -39,7 +40,7 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import javax.xml.namespace.QName;
 import java.io.IOException;
 import java.net.URI;
-import java.time.ZonedDateTime;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -53,6 +54,12 @@ public class SolrSearchController extends AbstractSolrController implements Sear
     @ConfigProperty(name = "solr.sgCacheSize", defaultValue = "10000")
     int sgCacheSize;
 
+    @ConfigProperty(name = "solr.sgCacheTime", defaultValue = "60s")
+    Duration sgCacheTime;
+
+    @ConfigProperty(name = "solr.sgCacheRefreshTime", defaultValue = "45s")
+    Duration sgCacheRefreshTime;
+
     @ConfigProperty(name = "solr.defaultRowsLimit", defaultValue = "10")
     int defaultRowsLimit;
 
@@ -68,12 +75,19 @@ public class SolrSearchController extends AbstractSolrController implements Sear
     @Inject
     PathDAO pathDAO;
 
-    private LRUCache<String, Expirable<String>> sgCache;
+    @Inject
+    CacheManager cacheManager;
+
+    private Cache<String, String> sgCache;
 
     @PostConstruct
     protected void init() {
         super.init();
-        sgCache = new LRUCache<>(sgCacheSize);
+        sgCache = cacheManager.newBuilder("search.sg")
+            .maximumSize(sgCacheSize)
+            .expireAfterWrite(sgCacheTime)
+            .refreshAfterWrite(sgCacheRefreshTime)
+            .build();
     }
 
     @Override
@@ -193,28 +207,17 @@ public class SolrSearchController extends AbstractSolrController implements Sear
                 }
 
                 case "none": {
-                    var cacheFQ = sgCache.get(username);
-                    if (cacheFQ.isPresent()) {
-                        var cachedItem = cacheFQ.get();
-                        if (!cachedItem.isExpired()) {
-                            log.trace("SG list found in cache for user {}", username);
-                            fq = cachedItem.getObject();
-                            break;
+                    var groups = String.join(" ", UserContextManager.getContext().getGroupSet());
+                    try {
+                        fq = sgCache.get(username, u -> findSecurityGroupFilter(collectionName, u, groups));
+                    } catch (SystemException e) {
+                        if (e.getCause() instanceof SearchEngineException se) {
+                            throw se;
+                        } else if (e.getCause() instanceof IOException ioe) {
+                            throw ioe;
                         }
+                        throw e;
                     }
-
-                    log.trace("Lookup SG list from solr for user {}", username);
-                    var params = new HashMap<String, String>();
-                    params.put("q", String.format("AUTHORITY:(%s %s)", username, String.join(" ", UserContextManager.getContext().getGroupSet())));
-                    params.put("start", "0");
-                    params.put("rows", "" + Integer.MAX_VALUE);
-                    params.put("fl", "ID");
-                    fq = listDocuments(collectionName + "-sg", params)
-                        .stream()
-                        .map(this::getID)
-                        .collect(Collectors.joining(" ", "SG:(", ")"));
-
-                    sgCache.put(username, new Expirable<>(fq, ZonedDateTime.now().plusSeconds(60)));
                     break;
                 }
 
@@ -272,6 +275,23 @@ public class SolrSearchController extends AbstractSolrController implements Sear
         }
     }
 
+    private String findSecurityGroupFilter(String collectionName, String username, String groups) {
+        log.trace("Lookup SG list from solr for user {}", username);
+        var params = new HashMap<String, String>();
+        params.put("q", String.format("AUTHORITY:(%s %s)", username, groups));
+        params.put("start", "0");
+        params.put("rows", "" + Integer.MAX_VALUE);
+        params.put("fl", "ID");
+        try {
+            return listDocuments(collectionName + "-sg", params)
+                .stream()
+                .map(this::getID)
+                .collect(Collectors.joining(" ", "SG:(", ")"));
+        } catch (SearchEngineException | IOException e) {
+            throw new SystemException(e);
+        }
+    }
+
     private String mapField(String name) {
         if (StringUtils.startsWith(name, "@")) {
             name = name.substring(1);
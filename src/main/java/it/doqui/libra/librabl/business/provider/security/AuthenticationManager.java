@@ -6,6 +6,8 @@ import com.auth0.jwt.exceptions.IncorrectClaimException;
 import com.auth0.jwt.exceptions.SignatureVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import io.quarkus.runtime.configuration.MemorySize;
+import it.doqui.libra.librabl.business.provider.cache.CacheManager;
 import it.doqui.libra.librabl.business.provider.data.entities.User;
 import it.doqui.libra.librabl.business.provider.data.entities.UserGroup;
 import it.doqui.libra.librabl.business.provider.integration.messaging.events.CleanCacheEvent;
@@ -14,7 +16,7 @@ import it.doqui.libra.librabl.business.service.auth.AuthenticationService;
 import it.doqui.libra.librabl.business.service.auth.UserContext;
 import it.doqui.libra.librabl.business.service.auth.UserContextManager;
 import it.doqui.libra.librabl.business.service.interfaces.TemporaryService;
-import it.doqui.libra.librabl.cache.LRUCache;
+import it.doqui.libra.librabl.cache.Cache;
 import it.doqui.libra.librabl.foundation.AuthorityRef;
 import it.doqui.libra.librabl.foundation.Expirable;
 import it.doqui.libra.librabl.foundation.TenantRef;
@@ -60,6 +62,9 @@ public class AuthenticationManager implements AuthenticationService {
     @ConfigProperty(name = "libra.authentication.cache.size", defaultValue = "1000")
     int cacheSize;
 
+    @ConfigProperty(name = "libra.authentication.cache.max-heap-size")
+    Optional<MemorySize> cacheMaxHeapSize;
+
     @ConfigProperty(name = "libra.authentication.cache.max-cached-gateway-accounts", defaultValue = "1")
     int maxCachedAccount;
 
@@ -87,13 +92,29 @@ public class AuthenticationManager implements AuthenticationService {
     @Inject
     TemporaryService temporaryService;
 
-    private LRUCache<String,Expirable<UserContextImpl>> contextCache;
-    private LRUCache<String,Expirable<AccountDTO.AccountDataDTO>> accountCache;
+    @Inject
+    CacheManager cacheManager;
+
+    private Cache<String,Expirable<UserContextImpl>> contextCache;
+    private Cache<String,Expirable<AccountDTO.AccountDataDTO>> accountCache;
 
     @PostConstruct
     void init() {
-        contextCache = new LRUCache<>(cacheSize);
-        accountCache = new LRUCache<>(maxCachedAccount);
+        var contextCacheBuilder = cacheManager.newBuilder("authentication.context")
+            .<String,Expirable<UserContextImpl>>expireAfter((k, v) -> v.timeToLive());
+        if (cacheMaxHeapSize.isPresent()) {
+            contextCacheBuilder
+                .maximumWeight(cacheMaxHeapSize.get().asLongValue())
+                .<String,Expirable<UserContextImpl>>weigher((k, v) -> 40 + 2L * k.length() + v.getObject().estimateHeapSize());
+        } else {
+            contextCacheBuilder.maximumSize(cacheSize);
+        }
+        contextCache = contextCacheBuilder.build();
+
+        accountCache = cacheManager.newBuilder("authentication.account")
+            .maximumSize(maxCachedAccount)
+            .<String,Expirable<AccountDTO.AccountDataDTO>>expireAfter((k, v) -> v.timeToLive())
+            .build();
     }
 
     void onStart(@Observes CleanCacheEvent ev) {
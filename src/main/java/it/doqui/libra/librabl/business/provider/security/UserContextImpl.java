@@ -89,6 +89,30 @@ public final class UserContextImpl implements UserContext {
         operationId = UUID.randomUUID().toString();
     }
 
+    // rough estimate of the retained heap, the shared model schema excluded
+    long estimateHeapSize() {
+        long size = 128;
+        size += sizeOf(authorityRef == null ? null : authorityRef.toString());
+        size += sizeOf(dbSchema) + sizeOf(channel) + sizeOf(application) + sizeOf(userIdentity) + sizeOf(operationId);
+        size += sizeOf(authenticationScheme);
+        for (var s : roleSet) {
+            size += 32 + sizeOf(s);
+        }
+        for (var s : scopeSet) {
+            size += 32 + sizeOf(s);
+        }
+        for (var s : groupSet) {
+            size += 32 + sizeOf(s);
+        }
+        size += securityGroupSet.size() * 48L;
+        size += attributes.size() * 96L;
+        return size;
+    }
+
+    private static long sizeOf(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
     @Override
     public Mode getMode() {
         return mode == null ? Mode.SYNC : mode;
@@ -3,6 +3,7 @@ package it.doqui.libra.librabl.business.service.interfaces;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Set;
 
 public interface ContentStoreService {
@@ -11,6 +12,34 @@ public interface ContentStoreService {
     Set<String> getStoresOfPath(Path path);
     Path getStorePath(String contentUrl);
     Path getPath(String contentUrl) throws IOException;
-    long writeStream(String contentUrl, InputStream stream) throws IOException;
+    WrittenContent writeStream(String contentUrl, InputStream stream) throws IOException;
 
+    default boolean isContentAddressable(String store) {
+        return false;
+    }
+
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+
+    StagedContent stageStream(String store, String tenant, InputStream stream) throws IOException;
+    boolean commitStaged(StagedContent content) throws IOException;
+
+    // Staged files live in the store itself (or locally, for remote stores) so that
+    // they can be moved into their final location without being copied again
+    Path getStagingPath(String store) throws IOException;
+    WrittenContent writeRange(Path file, long position, long length, InputStream stream) throws IOException;
+    StagedContent stageFile(String store, String tenant, Path file) throws IOException;
+    WrittenContent commitFile(String contentUrl, Path file) throws IOException;
+
+    // Drops what has been computed along with the ranges of a file that will not be committed
+    default void discardRanges(Path file) {
+    }
+
+    // digests are keyed by upper case algorithm name and hex encoded
+    record WrittenContent(long size, Map<String, String> digests) {
+    }
+
+    record StagedContent(String contentUrl, Path path, long size, Map<String, String> digests) {
+    }
 }
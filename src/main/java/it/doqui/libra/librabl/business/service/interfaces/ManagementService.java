@@ -1,6 +1,7 @@
 package it.doqui.libra.librabl.business.service.interfaces;
 
 import it.doqui.libra.librabl.business.service.async.FeedbackAsyncOperation;
+import it.doqui.libra.librabl.cache.CacheStats;
 import it.doqui.libra.librabl.foundation.async.AsyncOperation;
 import it.doqui.libra.librabl.views.management.MgmtOperation;
 import it.doqui.libra.librabl.views.management.VolumeInfo;
@@ -22,4 +23,7 @@ public interface ManagementService {
     void performOperations(List<MgmtOperation> operations);
     void performOperations(String tenant, List<MgmtOperation> operations);
     Optional<FeedbackAsyncOperation> getTask(String tenant, String taskId);
+    Map<String, CacheStats> getCacheStats();
+    Optional<CacheStats> getCacheStats(String name);
+    Map<String, Object> getContentStoreStats();
 }
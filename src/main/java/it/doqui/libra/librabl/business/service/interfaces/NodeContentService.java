@@ -11,6 +11,9 @@ import java.util.Map;
 
 public interface NodeContentService {
     NodeAttachment getNodeContent(ContentRef contentRef);
+
+    // Same as getNodeContent, without resolving the file: nothing is downloaded or inflated
+    NodeAttachment describeNodeContent(ContentRef contentRef);
     NodeAttachment getNodeContent(String uuid, String contentPropertyName) throws IOException;
     NodeAttachment getNodeContent(String uuid, String contentPropertyName, String fileName) throws IOException;
     Map<String,NodeAttachment> getNodeContents(Collection<ContentRequest> uuids, Long limit) throws IOException;
@@ -0,0 +1,15 @@
+package it.doqui.libra.librabl.business.service.interfaces;
+
+import it.doqui.libra.librabl.views.node.UploadPart;
+import it.doqui.libra.librabl.views.node.UploadSession;
+import it.doqui.libra.librabl.views.node.UploadSessionRequest;
+
+import java.io.InputStream;
+
+public interface UploadService {
+    UploadSession createUploadSession(String uuid, String contentPropertyName, UploadSessionRequest request);
+    UploadSession getUploadSession(String uuid, String sessionId);
+    UploadPart uploadPart(String uuid, String sessionId, int partNumber, InputStream stream, String checksum);
+    void commitUploadSession(String uuid, String sessionId);
+    void abortUploadSession(String uuid, String sessionId);
+}
@@ -1,12 +1,22 @@
 package it.doqui.libra.librabl.cache;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 public interface Cache<K, V> {
     boolean put(K key, V value);
     V putIfAbsent(K key, V value);
     Optional<V> get(K key);
+    V get(K key, Function<? super K, ? extends V> loader);
+    Optional<V> remove(K key);
     int size();
     boolean isEmpty();
     void clear();
+
+    default void cleanUp() {
+    }
+
+    default CacheStats stats() {
+        return CacheStats.empty(size());
+    }
 }
@@ -0,0 +1,213 @@
+package it.doqui.libra.librabl.cache;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+public class CacheBuilder<K, V> {
+    private CachePolicy policy = CachePolicy.TINYLFU;
+    private boolean admission = true;
+    private long maximumSize = 1000;
+    private long maximumWeight;
+    private Weigher<? super K, ? super V> weigher;
+    private long expireAfterWriteNanos;
+    private long expireAfterAccessNanos;
+    private long refreshAfterWriteNanos;
+    private Expiry<? super K, ? super V> expiry;
+    private RemovalListener<? super K, ? super V> removalListener;
+    private Executor executor;
+    private ScheduledExecutorService scheduler;
+    private Duration cleanUpInterval = Duration.ofSeconds(30);
+    private boolean recordStats;
+    private Consumer<Cache<?, ?>> buildCallback;
+
+    private CacheBuilder() {
+    }
+
+    public static CacheBuilder<Object, Object> newBuilder() {
+        return new CacheBuilder<>();
+    }
+
+    public CacheBuilder<K, V> policy(CachePolicy policy) {
+        this.policy = policy == null ? CachePolicy.TINYLFU : policy;
+        return this;
+    }
+
+    // recency only: the TinyLFU window spans the whole cache and no entry is rejected by the frequency filter
+    public CacheBuilder<K, V> withoutAdmission() {
+        this.admission = false;
+        return this;
+    }
+
+    public CacheBuilder<K, V> maximumSize(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache maximum size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    public CacheBuilder<K, V> maximumWeight(long maximumWeight) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Cache maximum weight must be positive");
+        }
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> weigher(Weigher<? super K1, ? super V1> weigher) {
+        var self = (CacheBuilder<K1, V1>) this;
+        self.weigher = weigher;
+        return self;
+    }
+
+    public CacheBuilder<K, V> expireAfterWrite(Duration duration) {
+        this.expireAfterWriteNanos = toNanos(duration);
+        return this;
+    }
+
+    public CacheBuilder<K, V> expireAfterAccess(Duration duration) {
+        this.expireAfterAccessNanos = toNanos(duration);
+        return this;
+    }
+
+    public CacheBuilder<K, V> refreshAfterWrite(Duration duration) {
+        this.refreshAfterWriteNanos = toNanos(duration);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> expireAfter(Expiry<? super K1, ? super V1> expiry) {
+        var self = (CacheBuilder<K1, V1>) this;
+        self.expiry = expiry;
+        return self;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> removalListener(RemovalListener<? super K1, ? super V1> listener) {
+        var self = (CacheBuilder<K1, V1>) this;
+        self.removalListener = listener;
+        return self;
+    }
+
+    public CacheBuilder<K, V> executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public CacheBuilder<K, V> scheduler(ScheduledExecutorService scheduler, Duration cleanUpInterval) {
+        this.scheduler = scheduler;
+        if (cleanUpInterval != null && !cleanUpInterval.isZero() && !cleanUpInterval.isNegative()) {
+            this.cleanUpInterval = cleanUpInterval;
+        }
+        return this;
+    }
+
+    public CacheBuilder<K, V> recordStats() {
+        this.recordStats = true;
+        return this;
+    }
+
+    public CacheBuilder<K, V> onBuild(Consumer<Cache<?, ?>> callback) {
+        this.buildCallback = callback;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> Cache<K1, V1> build() {
+        if (weigher != null && maximumWeight <= 0) {
+            throw new IllegalStateException("A weigher requires a maximum weight");
+        } else if (weigher == null && maximumWeight > 0) {
+            throw new IllegalStateException("A maximum weight requires a weigher");
+        }
+
+        Cache<K1, V1> cache = switch (policy) {
+            case LRU -> {
+                if (weigher != null) {
+                    throw new IllegalStateException("The LRU cache policy does not support weights");
+                }
+                yield new LRUCache<>((CacheBuilder<K1, V1>) this);
+            }
+            case TINYLFU -> new TinyLFUCache<>((CacheBuilder<K1, V1>) this);
+        };
+        if (buildCallback != null) {
+            buildCallback.accept(cache);
+        }
+        return cache;
+    }
+
+    CachePolicy getPolicy() {
+        return policy;
+    }
+
+    boolean isAdmitting() {
+        return admission;
+    }
+
+    long getMaximumSize() {
+        return maximumSize;
+    }
+
+    long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    Weigher<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+
+    long getExpireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    long getExpireAfterAccessNanos() {
+        return expireAfterAccessNanos;
+    }
+
+    long getRefreshAfterWriteNanos() {
+        return refreshAfterWriteNanos;
+    }
+
+    Expiry<? super K, ? super V> getExpiry() {
+        return expiry;
+    }
+
+    RemovalListener<? super K, ? super V> getRemovalListener() {
+        return removalListener;
+    }
+
+    Executor getExecutor() {
+        return executor == null ? ForkJoinPool.commonPool() : executor;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    Duration getCleanUpInterval() {
+        return cleanUpInterval;
+    }
+
+    boolean isRecordingStats() {
+        return recordStats;
+    }
+
+    boolean isExpiring() {
+        return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 || expiry != null;
+    }
+
+    private static long toNanos(Duration duration) {
+        if (duration == null || duration.isZero() || duration.isNegative()) {
+            return 0;
+        }
+
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package it.doqui.libra.librabl.cache;
 public class CacheElement<K,V> {
     private K key;
     private V value;
+    private long expiresAt;
+    private long accessTime;
 
     public CacheElement(K key, V value) {
         this.value = value;
@@ -24,4 +26,20 @@ public class CacheElement<K,V> {
     public void setValue(V value) {
         this.value = value;
     }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public long getAccessTime() {
+        return accessTime;
+    }
+
+    public void setAccessTime(long accessTime) {
+        this.accessTime = accessTime;
+    }
 }
@@ -0,0 +1,6 @@
+package it.doqui.libra.librabl.cache;
+
+public enum CachePolicy {
+    LRU,
+    TINYLFU
+}
@@ -0,0 +1,56 @@
+package it.doqui.libra.librabl.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@ToString
+public class CacheStats {
+    private final long size;
+    private final long estimatedWeight;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTimeMillis;
+    private final long evictionCount;
+    private final Map<RemovalCause, Long> evictionsByCause;
+    private final Map<String, Long> loadTimeHistogram;
+
+    CacheStats(long size, long estimatedWeight, long hitCount, long missCount,
+               long loadSuccessCount, long loadFailureCount, long totalLoadTimeMillis,
+               Map<RemovalCause, Long> evictionsByCause, Map<String, Long> loadTimeHistogram) {
+        this.size = size;
+        this.estimatedWeight = estimatedWeight;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeMillis = totalLoadTimeMillis;
+        this.evictionsByCause = Collections.unmodifiableMap(evictionsByCause);
+        this.evictionCount = evictionsByCause.values().stream().mapToLong(Long::longValue).sum();
+        this.loadTimeHistogram = Collections.unmodifiableMap(loadTimeHistogram);
+    }
+
+    public static CacheStats empty(long size) {
+        return new CacheStats(size, size, 0, 0, 0, 0, 0, new LinkedHashMap<>(), new LinkedHashMap<>());
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public double getAverageLoadTimeMillis() {
+        long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0 : (double) totalLoadTimeMillis / loadCount;
+    }
+}
@@ -0,0 +1,10 @@
+package it.doqui.libra.librabl.cache;
+
+import java.time.Duration;
+
+@FunctionalInterface
+public interface Expiry<K, V> {
+
+    // returns the time to live of the entry just written, or null if the entry never expires
+    Duration expireAfterWrite(K key, V value);
+}
@@ -1,31 +1,74 @@
 package it.doqui.libra.librabl.cache;
 
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
+// Legacy cache evicting the least recently used entry, built by the LRU policy as a fallback of TinyLFUCache.
+// Every operation changing the recency order runs under the write lock, loads included.
+// Entries expire when read or cleaned up; refresh ahead is not supported, so an entry is loaded again
+// only once it has expired. Weights are not supported.
+@Slf4j
 public class LRUCache<K, V> implements Cache<K, V> {
+    private static final long MAXIMUM_TTL_NANOS = Long.MAX_VALUE >> 1;
+
     private final int size;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final Expiry<? super K, ? super V> expiry;
+    private final RemovalListener<? super K, ? super V> removalListener;
+    private final Executor executor;
+    private final StatsCounter stats;
     private final Map<K, LinkedListNode<CacheElement<K, V>>> linkedListNodeMap;
     private final DoublyLinkedList<CacheElement<K, V>> doublyLinkedList;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    @SuppressWarnings("unchecked")
     public LRUCache(int size) {
-        this.size = size;
-        this.linkedListNodeMap = new ConcurrentHashMap<>(size);
+        this((CacheBuilder<K, V>) (CacheBuilder<?, ?>) CacheBuilder.newBuilder().policy(CachePolicy.LRU).maximumSize(size));
+    }
+
+    LRUCache(CacheBuilder<K, V> builder) {
+        this.size = (int) Math.min(builder.getMaximumSize(), Integer.MAX_VALUE);
+        this.expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
+        this.expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
+        this.expiry = builder.getExpiry();
+        this.removalListener = builder.getRemovalListener();
+        this.executor = builder.getExecutor();
+        this.stats = new StatsCounter(builder.isRecordingStats());
+        this.linkedListNodeMap = new ConcurrentHashMap<>(Math.min(size, 1 << 16));
         this.doublyLinkedList = new DoublyLinkedList<>();
+
+        var scheduler = builder.getScheduler();
+        if (scheduler != null && builder.isExpiring()) {
+            long interval = builder.getCleanUpInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::scheduledCleanUp, interval, interval, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public boolean put(K key, V value) {
         this.lock.writeLock().lock();
         try {
-            CacheElement<K, V> item = new CacheElement<>(key, value);
+            long now = System.nanoTime();
+            CacheElement<K, V> item = newElement(key, value, now);
             LinkedListNode<CacheElement<K, V>> newNode;
             if (this.linkedListNodeMap.containsKey(key)) {
                 LinkedListNode<CacheElement<K, V>> node = this.linkedListNodeMap.get(key);
+                CacheElement<K, V> oldItem = node.getElement();
                 newNode = doublyLinkedList.updateAndMoveToFront(node, item);
+                if (oldItem.getValue() != value) {
+                    notifyRemoval(key, oldItem.getValue(), isExpired(oldItem, now) ? RemovalCause.EXPIRED : RemovalCause.REPLACED);
+                }
             } else {
                 if (this.size() >= this.size) {
                     this.evictElement();
@@ -46,13 +89,18 @@ public class LRUCache<K, V> implements Cache<K, V> {
     public V putIfAbsent(K key, V value) {
         this.lock.writeLock().lock();
         try {
+            long now = System.nanoTime();
             LinkedListNode<CacheElement<K, V>> linkedListNode = this.linkedListNodeMap.get(key);
             if (linkedListNode != null && !linkedListNode.isEmpty()) {
-                linkedListNodeMap.put(key, this.doublyLinkedList.moveToFront(linkedListNode));
-                return linkedListNode.getElement().getValue();
+                if (!isExpired(linkedListNode.getElement(), now)) {
+                    linkedListNode.getElement().setAccessTime(now);
+                    linkedListNodeMap.put(key, this.doublyLinkedList.moveToFront(linkedListNode));
+                    return linkedListNode.getElement().getValue();
+                }
+                removeElement(key, RemovalCause.EXPIRED);
             }
 
-            CacheElement<K, V> item = new CacheElement<>(key, value);
+            CacheElement<K, V> item = newElement(key, value, now);
             LinkedListNode<CacheElement<K, V>> newNode;
             if (this.size() >= this.size) {
                 this.evictElement();
@@ -70,19 +118,86 @@ public class LRUCache<K, V> implements Cache<K, V> {
 
     @Override
     public Optional<V> get(K key) {
-        this.lock.readLock().lock();
+        // moving the entry to the front changes the list: concurrent readers would detach the same node twice
+        this.lock.writeLock().lock();
         try {
+            long now = System.nanoTime();
             LinkedListNode<CacheElement<K, V>> linkedListNode = this.linkedListNodeMap.get(key);
             if (linkedListNode != null && !linkedListNode.isEmpty()) {
-                linkedListNodeMap.put(key, this.doublyLinkedList.moveToFront(linkedListNode));
-                return Optional.of(linkedListNode.getElement().getValue());
+                if (isExpired(linkedListNode.getElement(), now)) {
+                    removeElement(key, RemovalCause.EXPIRED);
+                } else {
+                    stats.recordHits(1);
+                    linkedListNode.getElement().setAccessTime(now);
+                    linkedListNodeMap.put(key, this.doublyLinkedList.moveToFront(linkedListNode));
+                    return Optional.ofNullable(linkedListNode.getElement().getValue());
+                }
             }
+            stats.recordMisses(1);
             return Optional.empty();
         } finally {
-            this.lock.readLock().unlock();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        var value = get(key);
+        if (value.isPresent()) {
+            return value.get();
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            LinkedListNode<CacheElement<K, V>> linkedListNode = this.linkedListNodeMap.get(key);
+            if (linkedListNode != null && !linkedListNode.isEmpty() && !isExpired(linkedListNode.getElement(), System.nanoTime())) {
+                return linkedListNode.getElement().getValue();
+            }
+
+            long t0 = System.nanoTime();
+            final V loaded;
+            try {
+                loaded = loader.apply(key);
+            } catch (RuntimeException | Error e) {
+                stats.recordLoadFailure(System.nanoTime() - t0);
+                throw e;
+            }
+
+            if (loaded != null) {
+                stats.recordLoadSuccess(System.nanoTime() - t0);
+                put(key, loaded);
+            } else {
+                stats.recordLoadFailure(System.nanoTime() - t0);
+            }
+            return loaded;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<V> remove(K key) {
+        this.lock.writeLock().lock();
+        try {
+            LinkedListNode<CacheElement<K, V>> linkedListNode = this.linkedListNodeMap.get(key);
+            if (linkedListNode != null && !linkedListNode.isEmpty()) {
+                if (isExpired(linkedListNode.getElement(), System.nanoTime())) {
+                    removeElement(key, RemovalCause.EXPIRED);
+                    return Optional.empty();
+                }
+                return Optional.ofNullable(removeElement(key, RemovalCause.EXPLICIT));
+            }
+            return Optional.empty();
+        } finally {
+            this.lock.writeLock().unlock();
         }
     }
 
+    @Override
+    public CacheStats stats() {
+        return stats.snapshot(size());
+    }
+
     @Override
     public int size() {
         this.lock.readLock().lock();
@@ -102,6 +217,9 @@ public class LRUCache<K, V> implements Cache<K, V> {
     public void clear() {
         this.lock.writeLock().lock();
         try {
+            if (removalListener != null) {
+                linkedListNodeMap.forEach((key, node) -> notifyRemoval(key, node.getElement().getValue(), RemovalCause.EXPLICIT));
+            }
             linkedListNodeMap.clear();
             doublyLinkedList.clear();
         } finally {
@@ -109,6 +227,31 @@ public class LRUCache<K, V> implements Cache<K, V> {
         }
     }
 
+    @Override
+    public void cleanUp() {
+        this.lock.writeLock().lock();
+        try {
+            long now = System.nanoTime();
+            var expired = new ArrayList<K>();
+            linkedListNodeMap.forEach((key, node) -> {
+                if (isExpired(node.getElement(), now)) {
+                    expired.add(key);
+                }
+            });
+            expired.forEach(key -> removeElement(key, RemovalCause.EXPIRED));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void scheduledCleanUp() {
+        try {
+            cleanUp();
+        } catch (RuntimeException e) {
+            log.warn("Unable to clean up cache: {}", e.getMessage());
+        }
+    }
+
     private void evictElement() {
         this.lock.writeLock().lock();
         try {
@@ -116,9 +259,78 @@ public class LRUCache<K, V> implements Cache<K, V> {
             if (linkedListNode.isEmpty()) {
                 return;
             }
-            linkedListNodeMap.remove(linkedListNode.getElement().getKey());
+            var element = linkedListNode.getElement();
+            linkedListNodeMap.remove(element.getKey());
+            var cause = isExpired(element, System.nanoTime()) ? RemovalCause.EXPIRED : RemovalCause.SIZE;
+            stats.recordEviction(cause);
+            notifyRemoval(element.getKey(), element.getValue(), cause);
         } finally {
             this.lock.writeLock().unlock();
         }
     }
+
+    // must be called holding the write lock
+    private V removeElement(K key, RemovalCause cause) {
+        LinkedListNode<CacheElement<K, V>> linkedListNode = this.linkedListNodeMap.remove(key);
+        if (linkedListNode == null || linkedListNode.isEmpty()) {
+            return null;
+        }
+
+        var element = linkedListNode.getElement();
+        doublyLinkedList.remove(element);
+        stats.recordEviction(cause);
+        notifyRemoval(key, element.getValue(), cause);
+        return element.getValue();
+    }
+
+    private CacheElement<K, V> newElement(K key, V value, long now) {
+        CacheElement<K, V> item = new CacheElement<>(key, value);
+        long ttl = expireAfterWriteNanos > 0 ? expireAfterWriteNanos : MAXIMUM_TTL_NANOS;
+        if (expiry != null) {
+            var duration = expiry.expireAfterWrite(key, value);
+            if (duration != null) {
+                ttl = Math.min(ttl, toNanos(duration));
+            }
+        }
+        item.setExpiresAt(now + Math.min(ttl, MAXIMUM_TTL_NANOS));
+        item.setAccessTime(now);
+        return item;
+    }
+
+    private boolean isExpired(CacheElement<K, V> element, long now) {
+        return now - element.getExpiresAt() >= 0
+            || (expireAfterAccessNanos > 0 && now - element.getAccessTime() >= expireAfterAccessNanos);
+    }
+
+    private void notifyRemoval(K key, V value, RemovalCause cause) {
+        if (removalListener == null) {
+            return;
+        }
+
+        Runnable task = () -> {
+            try {
+                removalListener.onRemoval(key, value, cause);
+            } catch (RuntimeException e) {
+                log.warn("Removal listener failed on key {}: {}", key, e.getMessage());
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static long toNanos(Duration duration) {
+        if (duration.isNegative()) {
+            return 0;
+        }
+
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return MAXIMUM_TTL_NANOS;
+        }
+    }
 }
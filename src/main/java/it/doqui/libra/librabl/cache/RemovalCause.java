@@ -0,0 +1,12 @@
+package it.doqui.libra.librabl.cache;
+
+public enum RemovalCause {
+    EXPLICIT,
+    REPLACED,
+    EXPIRED,
+    SIZE;
+
+    public boolean wasEvicted() {
+        return this == EXPIRED || this == SIZE;
+    }
+}
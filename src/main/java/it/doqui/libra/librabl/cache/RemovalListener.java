@@ -0,0 +1,6 @@
+package it.doqui.libra.librabl.cache;
+
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+    void onRemoval(K key, V value, RemovalCause cause);
+}
@@ -0,0 +1,103 @@
+package it.doqui.libra.librabl.cache;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Thread safe recorder of the cache activity.
+// It can also be used by components keeping their own maps to expose the same statistics.
+public class StatsCounter {
+    private static final long[] LOAD_TIME_BUCKETS_MILLIS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    private final boolean enabled;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final EnumMap<RemovalCause, LongAdder> evictions = new EnumMap<>(RemovalCause.class);
+    private final LongAdder[] loadTimeBuckets = new LongAdder[LOAD_TIME_BUCKETS_MILLIS.length + 1];
+
+    public StatsCounter() {
+        this(true);
+    }
+
+    StatsCounter(boolean enabled) {
+        this.enabled = enabled;
+        for (var cause : RemovalCause.values()) {
+            if (cause.wasEvicted()) {
+                evictions.put(cause, new LongAdder());
+            }
+        }
+        for (int i = 0; i < loadTimeBuckets.length; i++) {
+            loadTimeBuckets[i] = new LongAdder();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recordHits(int count) {
+        if (enabled) {
+            hitCount.add(count);
+        }
+    }
+
+    public void recordMisses(int count) {
+        if (enabled) {
+            missCount.add(count);
+        }
+    }
+
+    public void recordLoadSuccess(long loadTimeNanos) {
+        if (enabled) {
+            loadSuccessCount.increment();
+            recordLoadTime(loadTimeNanos);
+        }
+    }
+
+    public void recordLoadFailure(long loadTimeNanos) {
+        if (enabled) {
+            loadFailureCount.increment();
+            recordLoadTime(loadTimeNanos);
+        }
+    }
+
+    public void recordEviction(RemovalCause cause) {
+        if (enabled && cause.wasEvicted()) {
+            evictions.get(cause).increment();
+        }
+    }
+
+    public CacheStats snapshot(long size) {
+        return snapshot(size, size);
+    }
+
+    public CacheStats snapshot(long size, long weight) {
+        var evictionsByCause = new EnumMap<RemovalCause, Long>(RemovalCause.class);
+        evictions.forEach((cause, count) -> evictionsByCause.put(cause, count.sum()));
+
+        var histogram = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < LOAD_TIME_BUCKETS_MILLIS.length; i++) {
+            histogram.put("<=" + LOAD_TIME_BUCKETS_MILLIS[i] + "ms", loadTimeBuckets[i].sum());
+        }
+        histogram.put(">" + LOAD_TIME_BUCKETS_MILLIS[LOAD_TIME_BUCKETS_MILLIS.length - 1] + "ms", loadTimeBuckets[LOAD_TIME_BUCKETS_MILLIS.length].sum());
+
+        return new CacheStats(size, weight,
+            hitCount.sum(), missCount.sum(),
+            loadSuccessCount.sum(), loadFailureCount.sum(), TimeUnit.NANOSECONDS.toMillis(totalLoadTime.sum()),
+            evictionsByCause, histogram);
+    }
+
+    private void recordLoadTime(long loadTimeNanos) {
+        totalLoadTime.add(loadTimeNanos);
+        long millis = TimeUnit.NANOSECONDS.toMillis(loadTimeNanos);
+        int i = 0;
+        while (i < LOAD_TIME_BUCKETS_MILLIS.length && millis > LOAD_TIME_BUCKETS_MILLIS[i]) {
+            i++;
+        }
+        loadTimeBuckets[i].increment();
+    }
+}
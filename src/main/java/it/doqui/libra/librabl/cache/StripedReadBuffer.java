@@ -0,0 +1,82 @@
+package it.doqui.libra.librabl.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Lossy multiple-producer/single-consumer buffer used to record reads without locking.
+// Producers never block: when the stripe is full or contended the event is simply dropped.
+// Draining must be performed by a single thread at a time (the cache eviction lock owner).
+class StripedReadBuffer<E> {
+    static final int SUCCESS = 0;
+    static final int FAILED = 1;
+    static final int FULL = 2;
+
+    private static final int BUFFER_SIZE = 16;
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    StripedReadBuffer() {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        this.stripes = newStripes(n);
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = n - 1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> Stripe<E>[] newStripes(int n) {
+        return new Stripe[n];
+    }
+
+    int offer(E e) {
+        int h = System.identityHashCode(Thread.currentThread());
+        h ^= (h >>> 16);
+        return stripes[h & stripeMask].offer(e);
+    }
+
+    void drainTo(Consumer<E> consumer) {
+        for (var stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static class Stripe<E> {
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        int offer(E e) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            if (tail - head >= BUFFER_SIZE) {
+                return FULL;
+            }
+
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & BUFFER_MASK), e);
+                return SUCCESS;
+            }
+            return FAILED;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & BUFFER_MASK);
+                E e = buffer.get(index);
+                if (e == null) {
+                    // slot reserved but not yet published
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            readCounter = head;
+        }
+    }
+}
@@ -0,0 +1,715 @@
+package it.doqui.libra.librabl.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Bounded cache using the W-TinyLFU admission policy.
+// Lookups go straight to a ConcurrentHashMap and only record the access into a lossy striped buffer,
+// so readers never block each other. Recency and frequency bookkeeping is replayed in batches by the
+// thread owning the eviction lock. New entries land in a small LRU window; when they leave it they are
+// admitted to the main segmented LRU only if the frequency sketch considers them more popular than the
+// entry that would be evicted, so a one-shot scan (e.g. a reindex burst) cannot flush the hot set.
+// Built without admission the window spans the whole cache and no admission filter is applied.
+// When a weigher is configured the capacity is expressed in weight units (e.g. bytes) instead of entries.
+@Slf4j
+public class TinyLFUCache<K, V> implements Cache<K, V> {
+    private static final double WINDOW_PERCENTAGE = 0.01d;
+    private static final double PROTECTED_PERCENTAGE = 0.80d;
+    private static final int ADMIT_HASHDOS_THRESHOLD = 6;
+    private static final long MAXIMUM_TTL_NANOS = Long.MAX_VALUE >> 1;
+    private static final long MAXIMUM_WEIGHTED_SKETCH_SIZE = 1 << 14;
+
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final boolean admission;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final long refreshAfterWriteNanos;
+    private final Expiry<? super K, ? super V> expiry;
+    private final Weigher<? super K, ? super V> weigher;
+    private final RemovalListener<? super K, ? super V> removalListener;
+    private final Executor executor;
+    private final StatsCounter stats;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final FrequencySketch<K> sketch;
+    private final StripedReadBuffer<Node<K, V>> readBuffer;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // guarded by evictionLock
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> protectedDeque = new AccessOrderDeque<>();
+
+    @SuppressWarnings("unchecked")
+    public TinyLFUCache(long maximumSize) {
+        this((CacheBuilder<K, V>) (CacheBuilder<?, ?>) CacheBuilder.newBuilder().maximumSize(maximumSize));
+    }
+
+    TinyLFUCache(CacheBuilder<K, V> builder) {
+        this.weigher = builder.getWeigher();
+        this.maximum = weigher == null ? builder.getMaximumSize() : builder.getMaximumWeight();
+        this.admission = builder.isAdmitting();
+        if (admission) {
+            this.windowMaximum = Math.max(1, (long) (maximum * WINDOW_PERCENTAGE));
+            this.protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_PERCENTAGE);
+        } else {
+            this.windowMaximum = maximum;
+            this.protectedMaximum = 0;
+        }
+
+        this.expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
+        this.expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
+        this.refreshAfterWriteNanos = builder.getRefreshAfterWriteNanos();
+        this.expiry = builder.getExpiry();
+        this.removalListener = builder.getRemovalListener();
+        this.executor = builder.getExecutor();
+        this.stats = new StatsCounter(builder.isRecordingStats());
+
+        long estimatedEntries = weigher == null ? maximum : Math.min(maximum, MAXIMUM_WEIGHTED_SKETCH_SIZE);
+        this.data = new ConcurrentHashMap<>((int) Math.min(estimatedEntries, 1 << 16));
+        this.sketch = new FrequencySketch<>(admission ? estimatedEntries : 1);
+        this.readBuffer = new StripedReadBuffer<>();
+
+        var scheduler = builder.getScheduler();
+        if (scheduler != null && builder.isExpiring()) {
+            long interval = builder.getCleanUpInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::scheduledCleanUp, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        long now = System.nanoTime();
+        for (;;) {
+            var node = data.get(key);
+            if (node == null) {
+                var newNode = new Node<>(key, value, weigh(key, value), now, expiresAt(key, value, now));
+                node = data.putIfAbsent(key, newNode);
+                if (node == null) {
+                    afterWrite(newNode);
+                    return true;
+                }
+            }
+
+            if (update(node, value, now, RemovalCause.REPLACED)) {
+                afterUpdate(node);
+                return true;
+            }
+
+            // the node is being removed: wait for it to leave the map and insert a fresh one
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        long now = System.nanoTime();
+        for (;;) {
+            var node = data.get(key);
+            if (node == null) {
+                var newNode = new Node<>(key, value, weigh(key, value), now, expiresAt(key, value, now));
+                node = data.putIfAbsent(key, newNode);
+                if (node == null) {
+                    afterWrite(newNode);
+                    return value;
+                }
+            }
+
+            if (!node.retired) {
+                if (!isExpired(node, now)) {
+                    node.accessTime = now;
+                    afterRead(node);
+                    return node.value;
+                }
+
+                if (update(node, value, now, RemovalCause.EXPIRED)) {
+                    afterUpdate(node);
+                    return value;
+                }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        var node = data.get(key);
+        if (node == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+
+        long now = System.nanoTime();
+        if (isExpired(node, now)) {
+            stats.recordMisses(1);
+            tryExpire(node);
+            return Optional.empty();
+        }
+
+        stats.recordHits(1);
+        node.accessTime = now;
+        afterRead(node);
+        return Optional.ofNullable(node.value);
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        var node = data.get(key);
+        long now = System.nanoTime();
+        if (node != null && !node.retired) {
+            if (!isExpired(node, now)) {
+                stats.recordHits(1);
+                node.accessTime = now;
+                afterRead(node);
+                if (refreshAfterWriteNanos > 0 && now - node.writeTime >= refreshAfterWriteNanos) {
+                    refresh(node, loader);
+                }
+                return node.value;
+            }
+            tryExpire(node);
+        }
+
+        stats.recordMisses(1);
+        return load(key, loader);
+    }
+
+    @Override
+    public Optional<V> remove(K key) {
+        var node = data.get(key);
+        if (node == null) {
+            return Optional.empty();
+        }
+
+        evictionLock.lock();
+        try {
+            boolean expired = isExpired(node, System.nanoTime());
+            var value = removeNode(node, expired ? RemovalCause.EXPIRED : RemovalCause.EXPLICIT);
+            return expired ? Optional.empty() : Optional.ofNullable(value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        if (weigher == null) {
+            return stats.snapshot(data.size());
+        }
+
+        evictionLock.lock();
+        try {
+            return stats.snapshot(data.size(), window.weight() + probation.weight() + protectedDeque.weight());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(node -> {});
+            for (var node : data.values()) {
+                removeNode(node, RemovalCause.EXPLICIT);
+            }
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            if (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 || expiry != null) {
+                long now = System.nanoTime();
+                expireEntries(window, now);
+                expireEntries(probation, now);
+                expireEntries(protectedDeque, now);
+            }
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void scheduledCleanUp() {
+        try {
+            cleanUp();
+        } catch (RuntimeException e) {
+            log.warn("Unable to clean up cache: {}", e.getMessage());
+        }
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        var future = new CompletableFuture<V>();
+        var pending = loading.putIfAbsent(key, future);
+        if (pending != null) {
+            return await(pending);
+        }
+
+        try {
+            var node = data.get(key);
+            long now = System.nanoTime();
+            if (node != null && !node.retired && !isExpired(node, now)) {
+                afterRead(node);
+                future.complete(node.value);
+                return node.value;
+            }
+
+            long t0 = System.nanoTime();
+            final V value;
+            try {
+                value = loader.apply(key);
+            } catch (RuntimeException | Error e) {
+                stats.recordLoadFailure(System.nanoTime() - t0);
+                throw e;
+            }
+
+            if (value != null) {
+                stats.recordLoadSuccess(System.nanoTime() - t0);
+                put(key, value);
+            } else {
+                stats.recordLoadFailure(System.nanoTime() - t0);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private void refresh(Node<K, V> node, Function<? super K, ? extends V> loader) {
+        var key = node.key;
+        if (!refreshing.add(key)) {
+            return;
+        }
+
+        long writeTime = node.writeTime;
+        try {
+            executor.execute(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    V value = loader.apply(key);
+                    stats.recordLoadSuccess(System.nanoTime() - t0);
+                    if (value != null && data.get(key) == node && node.writeTime == writeTime) {
+                        put(key, value);
+                    }
+                } catch (RuntimeException e) {
+                    stats.recordLoadFailure(System.nanoTime() - t0);
+                    log.warn("Unable to refresh cache entry {}: {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private boolean update(Node<K, V> node, V value, long now, RemovalCause cause) {
+        final V oldValue;
+        synchronized (node) {
+            if (node.retired) {
+                return false;
+            }
+
+            oldValue = node.value;
+            node.value = value;
+            node.weight = weigh(node.key, value);
+            node.writeTime = now;
+            node.accessTime = now;
+            node.expiresAt = expiresAt(node.key, value, now);
+        }
+
+        if (oldValue != value) {
+            notifyRemoval(node.key, oldValue, cause);
+        }
+        return true;
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (readBuffer.offer(node) == StripedReadBuffer.FULL && evictionLock.tryLock()) {
+            try {
+                // the read that found the buffer full is not lost along with it
+                drainReadBuffer();
+                onAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void afterUpdate(Node<K, V> node) {
+        if (weigher == null) {
+            afterRead(node);
+            return;
+        }
+
+        // the weight of the entry may have changed: the new capacity has to be enforced now
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            onAccess(node);
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void afterWrite(Node<K, V> node) {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            if (!node.retired) {
+                if (admission) {
+                    sketch.increment(node.key);
+                }
+                node.queue = QueueType.WINDOW;
+                window.addLast(node);
+            }
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void tryExpire(Node<K, V> node) {
+        if (evictionLock.tryLock()) {
+            try {
+                if (isExpired(node, System.nanoTime())) {
+                    removeNode(node, RemovalCause.EXPIRED);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        readBuffer.drainTo(this::onAccess);
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.retired || node.queue == null) {
+            return;
+        }
+
+        if (admission) {
+            sketch.increment(node.key);
+        }
+
+        if (node.policyWeight != node.weight) {
+            dequeOf(node).reweigh(node);
+        }
+
+        switch (node.queue) {
+            case WINDOW -> window.moveToBack(node);
+            case PROBATION -> {
+                probation.remove(node);
+                node.queue = QueueType.PROTECTED;
+                protectedDeque.addLast(node);
+                while (protectedDeque.weight() > protectedMaximum) {
+                    var demoted = protectedDeque.pollFirst();
+                    if (demoted == null) {
+                        break;
+                    }
+                    demoted.queue = QueueType.PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            case PROTECTED -> protectedDeque.moveToBack(node);
+        }
+    }
+
+    private void expireEntries(AccessOrderDeque<K, V> deque, long now) {
+        Node<K, V> next;
+        for (var node = deque.peekFirst(); node != null; node = next) {
+            next = node.next;
+            if (isExpired(node, now)) {
+                removeNode(node, RemovalCause.EXPIRED);
+            }
+        }
+    }
+
+    private void evictEntries() {
+        // entries overflowing the window become admission candidates at the tail of the probation segment
+        Node<K, V> candidate = null;
+        while (window.weight() > windowMaximum) {
+            var node = window.pollFirst();
+            node.queue = QueueType.PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        while (window.weight() + probation.weight() + protectedDeque.weight() > maximum) {
+            var victim = probation.peekFirst();
+            if (candidate != null && candidate.policyWeight > maximum) {
+                // an entry heavier than the whole cache can never be retained
+                var rejected = candidate;
+                candidate = candidate.next;
+                removeNode(rejected, RemovalCause.SIZE);
+            } else if (victim == null) {
+                victim = protectedDeque.peekFirst();
+                if (victim == null) {
+                    victim = window.peekFirst();
+                }
+                removeNode(victim, RemovalCause.SIZE);
+            } else if (candidate == null || candidate == victim) {
+                if (candidate == victim) {
+                    candidate = victim.next;
+                }
+                removeNode(victim, RemovalCause.SIZE);
+            } else if (admit(candidate.key, victim.key)) {
+                removeNode(victim, RemovalCause.SIZE);
+            } else {
+                var rejected = candidate;
+                candidate = candidate.next;
+                removeNode(rejected, RemovalCause.SIZE);
+            }
+        }
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        if (!admission) {
+            return true;
+        }
+
+        int candidateFreq = sketch.frequency(candidateKey);
+        int victimFreq = sketch.frequency(victimKey);
+        if (candidateFreq > victimFreq) {
+            return true;
+        } else if (candidateFreq < ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+
+        // avoid a warm victim being pinned forever by an attacker-controlled key collision
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    // must be called holding the eviction lock
+    private V removeNode(Node<K, V> node, RemovalCause cause) {
+        final V value;
+        synchronized (node) {
+            if (node.retired) {
+                return null;
+            }
+            node.retired = true;
+            value = node.value;
+        }
+
+        if (node.queue != null) {
+            dequeOf(node).remove(node);
+            node.queue = null;
+        }
+
+        data.remove(node.key, node);
+        stats.recordEviction(cause);
+        notifyRemoval(node.key, value, cause);
+        return value;
+    }
+
+    private void notifyRemoval(K key, V value, RemovalCause cause) {
+        if (removalListener == null) {
+            return;
+        }
+
+        Runnable task = () -> {
+            try {
+                removalListener.onRemoval(key, value, cause);
+            } catch (RuntimeException e) {
+                log.warn("Removal listener failed on key {}: {}", key, e.getMessage());
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private AccessOrderDeque<K, V> dequeOf(Node<K, V> node) {
+        return switch (node.queue) {
+            case WINDOW -> window;
+            case PROBATION -> probation;
+            case PROTECTED -> protectedDeque;
+        };
+    }
+
+    private long weigh(K key, V value) {
+        return weigher == null ? 1 : Math.max(0, weigher.weigh(key, value));
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return now - node.expiresAt >= 0
+            || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private long expiresAt(K key, V value, long now) {
+        long ttl = expireAfterWriteNanos > 0 ? expireAfterWriteNanos : MAXIMUM_TTL_NANOS;
+        if (expiry != null) {
+            var duration = expiry.expireAfterWrite(key, value);
+            if (duration != null) {
+                ttl = Math.min(ttl, toNanos(duration));
+            }
+        }
+        return now + Math.min(ttl, MAXIMUM_TTL_NANOS);
+    }
+
+    private static long toNanos(Duration duration) {
+        if (duration.isNegative()) {
+            return 0;
+        }
+
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return MAXIMUM_TTL_NANOS;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            } else if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    private enum QueueType {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile long writeTime;
+        private volatile long accessTime;
+        private volatile long expiresAt;
+        private volatile long weight;
+        private volatile boolean retired;
+
+        // guarded by evictionLock
+        private QueueType queue;
+        private long policyWeight;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        Node(K key, V value, long weight, long now, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class AccessOrderDeque<K, V> {
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private long weight;
+
+        long weight() {
+            return weight;
+        }
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        Node<K, V> pollFirst() {
+            var node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            node.policyWeight = node.weight;
+            weight += node.policyWeight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+
+            node.prev = null;
+            node.next = null;
+            weight -= node.policyWeight;
+        }
+
+        void reweigh(Node<K, V> node) {
+            long newWeight = node.weight;
+            weight += newWeight - node.policyWeight;
+            node.policyWeight = newWeight;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+            weight = 0;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package it.doqui.libra.librabl.cache;
+
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    // returns the weight of the entry (e.g. estimated bytes); it is evaluated only when the entry is written
+    long weigh(K key, V value);
+}
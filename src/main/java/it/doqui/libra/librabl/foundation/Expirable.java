@@ -3,6 +3,7 @@ package it.doqui.libra.librabl.foundation;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 
 @Getter
@@ -23,4 +24,8 @@ public class Expirable <T> {
     public boolean isExpired() {
         return expires != null && expires.isBefore(ZonedDateTime.now());
     }
+
+    public Duration timeToLive() {
+        return expires == null ? null : Duration.between(ZonedDateTime.now(), expires);
+    }
 }
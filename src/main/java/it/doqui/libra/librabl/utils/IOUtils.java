@@ -3,9 +3,12 @@ package it.doqui.libra.librabl.utils;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.commons.lang3.StringUtils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public final class IOUtils {
 
@@ -29,6 +32,36 @@ public final class IOUtils {
         }
     }
 
+    // Reads a file with a single allocation sized on the file length
+    public static byte[] readFully(Path path) throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    public static long transfer(Path path, OutputStream os) throws IOException {
+        return transfer(path, 0, Long.MAX_VALUE, os);
+    }
+
+    // Copies a file region through FileChannel.transferTo: file targets use the zero-copy path of the OS,
+    // other streams are fed by the bounded direct buffers of the JDK, so heap usage does not depend on file size
+    public static long transfer(Path path, long position, long count, OutputStream os) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var target = os instanceof FileOutputStream fos ? fos.getChannel() : Channels.newChannel(os);
+            long remaining = Math.min(count, Math.max(0, channel.size() - position));
+            long transferred = 0;
+            while (remaining > 0) {
+                long n = channel.transferTo(position, remaining, target);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+                remaining -= n;
+                transferred += n;
+            }
+
+            return transferred;
+        }
+    }
+
     public static String getFileName(String contentDisposition) {
         String fileName = null;
         if (contentDisposition != null) {
@@ -32,6 +32,10 @@ public class ContentProperty extends ContentDescriptor implements Stringable, Se
     @JsonIgnore
     private transient UpdateOperation op;
 
+    // digests computed while writing, persisted along with the file reference
+    @JsonIgnore
+    private transient Map<String, String> digests;
+
     public ContentProperty() {
         clear();
     }
@@ -80,7 +84,7 @@ public class ContentProperty extends ContentDescriptor implements Stringable, Se
             String[] b = s.split("=");
             if (b.length > 0) {
                 String k = b[0];
-                if (!"name".equals(k) && !"text".equals(k)) {
+                if (!"name".equals(k) && !"text".equals(k) && !"digests".equals(k)) {
                     String v = b.length > 1 && !StringUtils.equals(b[1], "null") ? StringUtils.stripToNull(b[1]) : null;
                     Field f = fieldMap.get(k);
                     if (f != null && v != null) {
@@ -104,6 +108,7 @@ public class ContentProperty extends ContentDescriptor implements Stringable, Se
         Arrays.stream(this.getClass().getDeclaredFields())
             .filter(f -> !StringUtils.equals(f.getName(), "name"))
             .filter(f -> !StringUtils.equals(f.getName(), "text"))
+            .filter(f -> !StringUtils.equals(f.getName(), "digests"))
             .forEach(f -> fieldMap.put(f.getName(), f));
 
         Arrays.stream(this.getClass().getSuperclass().getDeclaredFields())
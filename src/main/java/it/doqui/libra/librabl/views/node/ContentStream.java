@@ -8,6 +8,7 @@ import lombok.Setter;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 
 @Getter
 @Setter
@@ -18,4 +19,8 @@ public class ContentStream extends ContentDescriptor {
 
     @JsonIgnore
     private transient InputStream inputStream;
+
+    // file already uploaded into the staging area of the store, used instead of the input stream
+    @JsonIgnore
+    private transient Path stagedFile;
 }
@@ -0,0 +1,18 @@
+package it.doqui.libra.librabl.views.node;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadPart {
+    private int partNumber;
+    private long size;
+    private String sha256;
+}
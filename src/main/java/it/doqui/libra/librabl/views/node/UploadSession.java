@@ -0,0 +1,31 @@
+package it.doqui.libra.librabl.views.node;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadSession {
+    private String id;
+    private String uuid;
+    private String contentPropertyName;
+    private String fileName;
+    private String mimetype;
+    private String encoding;
+    private long size;
+    private long partSize;
+    private int partCount;
+    private boolean append;
+    private String currentFileName;
+    private List<Integer> receivedParts = new ArrayList<>();
+    private ZonedDateTime createdAt;
+    private ZonedDateTime expiresAt;
+}
@@ -0,0 +1,18 @@
+package it.doqui.libra.librabl.views.node;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+public class UploadSessionRequest {
+    private String fileName;
+    private String mimetype;
+    private String encoding;
+    private long size;
+    private Long partSize;
+    private boolean append;
+    private String currentFileName;
+}
@@ -0,0 +1,180 @@
+package it.doqui.libra.librabl.api.core;
+
+import jakarta.ws.rs.core.*;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentResponseBuilderTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path dir;
+
+    private File file;
+    private HttpHeaders headers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.writeString(dir.resolve("content.txt"), CONTENT).toFile();
+        headers = mock(HttpHeaders.class);
+    }
+
+    @Test
+    void wholeContentIsSentWithItsValidators() throws IOException {
+        var response = builder().build(null, headers);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, body(response));
+        assertEquals(CONTENT.length(), Long.parseLong(header(response, HttpHeaders.CONTENT_LENGTH)));
+        assertEquals("bytes", header(response, "Accept-Ranges"));
+        assertEquals(new EntityTag("tag"), response.getEntityTag());
+        assertEquals(file.lastModified() / 1000 * 1000, response.getLastModified().getTime());
+    }
+
+    @Test
+    void singleRangeIsSentAsPartialContent() throws IOException {
+        when(headers.getHeaderString("Range")).thenReturn("bytes=2-5");
+
+        var response = builder().build(null, headers);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", body(response));
+        assertEquals("bytes 2-5/20", header(response, "Content-Range"));
+        assertEquals("4", header(response, HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void suffixRangeIsTheTailOfTheContent() throws IOException {
+        when(headers.getHeaderString("Range")).thenReturn("bytes=-3");
+
+        var response = builder().build(null, headers);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("hij", body(response));
+        assertEquals("bytes 17-19/20", header(response, "Content-Range"));
+    }
+
+    @Test
+    void severalRangesAreSentAsMultipart() throws IOException {
+        when(headers.getHeaderString("Range")).thenReturn("bytes=0-1, 10-11");
+
+        var response = builder().build(null, headers);
+
+        assertEquals(206, response.getStatus());
+        var type = response.getMediaType();
+        assertEquals("multipart/byteranges", type.getType() + "/" + type.getSubtype());
+        var boundary = type.getParameters().get("boundary");
+        var body = body(response);
+        assertEquals(body.length(), Long.parseLong(header(response, HttpHeaders.CONTENT_LENGTH)));
+        assertEquals("\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/20\r\n\r\n01"
+            + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 10-11/20\r\n\r\nab"
+            + "\r\n--" + boundary + "--\r\n", body);
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() {
+        when(headers.getHeaderString("Range")).thenReturn("bytes=20-30");
+
+        var response = builder().build(null, headers);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", header(response, "Content-Range"));
+    }
+
+    @Test
+    void rangeOfAnotherVersionSendsTheWholeContent() throws IOException {
+        when(headers.getHeaderString("Range")).thenReturn("bytes=2-5");
+        when(headers.getHeaderString("If-Range")).thenReturn("\"other\"");
+
+        var response = builder().build(null, headers);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, body(response));
+    }
+
+    @Test
+    void rangeOfTheSameVersionIsSent() throws IOException {
+        when(headers.getHeaderString("Range")).thenReturn("bytes=2-5");
+        when(headers.getHeaderString("If-Range")).thenReturn("\"tag\"");
+        assertEquals(206, builder().build(null, headers).getStatus());
+
+        when(headers.getHeaderString("If-Range")).thenReturn("W/\"tag\"");
+        assertEquals(200, builder().build(null, headers).getStatus());
+
+        when(headers.getHeaderString("If-Range")).thenReturn(DateUtils.formatDate(new Date(file.lastModified())));
+        assertEquals(206, builder().build(null, headers).getStatus());
+    }
+
+    @Test
+    void conditionalRequestMatchingTheTagIsNotModified() {
+        var request = mock(Request.class);
+        when(request.evaluatePreconditions(any(Date.class), any(EntityTag.class)))
+            .thenAnswer(i -> new EntityTag("tag").equals(i.getArgument(1)) ? Response.notModified() : null);
+
+        var response = builder().build(request, headers);
+        assertEquals(304, response.getStatus());
+        assertNull(response.getEntity());
+        assertEquals(new EntityTag("tag"), response.getEntityTag());
+
+        response = ContentResponseBuilder.of(file).entityTag(new EntityTag("changed")).build(request, headers);
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void malformedRangesAreIgnored() {
+        assertNull(ContentResponseBuilder.parseRanges("items=0-1", 20));
+        assertNull(ContentResponseBuilder.parseRanges("bytes=5-2", 20));
+        assertNull(ContentResponseBuilder.parseRanges("bytes=a-b", 20));
+        assertNull(ContentResponseBuilder.parseRanges("bytes=" + "0-0,".repeat(33), 20));
+    }
+
+    @Test
+    void overlappingRangesAreMerged() {
+        assertEquals(List.of(new ContentResponseBuilder.ByteRange(0, 7), new ContentResponseBuilder.ByteRange(10, 19)),
+            ContentResponseBuilder.parseRanges("bytes=10-,0-3,2-7", 20));
+        assertEquals(List.of(new ContentResponseBuilder.ByteRange(0, 19)),
+            ContentResponseBuilder.parseRanges("bytes=0-9,10-", 20));
+    }
+
+    @Test
+    void entityTagOfContentAddressedUrlIsItsHash() {
+        assertEquals(new EntityTag("abc123"), ContentResponseBuilder.entityTag("store://cas/ab/abc123.bin", 10));
+
+        var tag = ContentResponseBuilder.entityTag("store://2024/1/file.bin", 10);
+        assertEquals(tag, ContentResponseBuilder.entityTag("store://2024/1/file.bin", 10));
+        assertNotEquals(tag, ContentResponseBuilder.entityTag("store://2024/1/file.bin", 11));
+    }
+
+    private ContentResponseBuilder builder() {
+        return ContentResponseBuilder.of(file)
+            .type("text/plain")
+            .entityTag(new EntityTag("tag"));
+    }
+
+    private static String body(Response response) throws IOException {
+        var os = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(os);
+        return os.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String header(Response response, String name) {
+        return response.getHeaderString(name);
+    }
+}
@@ -0,0 +1,306 @@
+package it.doqui.libra.librabl.business.provider.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.quarkus.runtime.configuration.MemorySize;
+import it.doqui.libra.librabl.business.service.auth.UserContext;
+import it.doqui.libra.librabl.business.service.auth.UserContextManager;
+import it.doqui.libra.librabl.business.service.interfaces.ContentStoreService;
+import it.doqui.libra.librabl.business.service.interfaces.NodeContentService;
+import it.doqui.libra.librabl.foundation.TenantRef;
+import it.doqui.libra.librabl.foundation.exceptions.BadRequestException;
+import it.doqui.libra.librabl.foundation.exceptions.ConflictException;
+import it.doqui.libra.librabl.foundation.exceptions.ForbiddenException;
+import it.doqui.libra.librabl.foundation.exceptions.NotFoundException;
+import it.doqui.libra.librabl.foundation.exceptions.PreconditionFailedException;
+import it.doqui.libra.librabl.views.node.ContentStream;
+import it.doqui.libra.librabl.views.node.UploadSession;
+import it.doqui.libra.librabl.views.node.UploadSessionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UploadManagerTest {
+
+    private static final String UUID = "node-uuid";
+    private static final String PROPERTY = "cm:content";
+
+    @TempDir
+    Path staging;
+
+    @Mock
+    ContentStoreService contentStoreService;
+
+    @Mock
+    NodeContentService nodeContentService;
+
+    @Mock
+    NodeManager nodeManager;
+
+    @Mock
+    SimpleNodeAccessManager simpleNodeAccessManager;
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @InjectMocks
+    UploadManager uploadManager;
+
+    @Mock
+    UserContext context;
+
+    private final List<byte[]> committed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploadManager.defaultPartSize = new MemorySize(BigInteger.valueOf(1024));
+        uploadManager.minPartSize = new MemorySize(BigInteger.valueOf(1024));
+        uploadManager.maxPartSize = new MemorySize(BigInteger.valueOf(4096));
+        uploadManager.maxParts = 10;
+        uploadManager.sessionTimeToLive = Duration.ofHours(1);
+
+        when(context.getTenantRef()).thenReturn(TenantRef.valueOf("tenant"));
+        when(context.getAuthority()).thenReturn("admin@tenant");
+        UserContextManager.setContext(context);
+
+        when(nodeManager.currentStore()).thenReturn("store");
+        when(contentStoreService.getStagingPath("store")).thenReturn(staging);
+        when(contentStoreService.writeRange(any(), anyLong(), anyLong(), any())).thenAnswer(i ->
+            writeRange(i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3)));
+
+        // the store takes the staged file away
+        doAnswer(i -> {
+            var file = i.<ContentStream>getArgument(1).getStagedFile();
+            committed.add(Files.readAllBytes(file));
+            Files.delete(file);
+            return null;
+        }).when(nodeContentService).setNodeContent(eq(UUID), any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContextManager.removeContext();
+    }
+
+    @Test
+    void partsUploadedConcurrentlyAreCommittedAsOneContent() throws Exception {
+        var content = randomBytes(4000);
+        var session = create(content.length);
+        assertEquals(4, session.getPartCount());
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (var n : List.of(4, 2, 3, 1)) {
+                futures.add(executor.submit(() -> {
+                    UserContextManager.setContext(context);
+                    uploadManager.uploadPart(UUID, session.getId(), n, part(content, session, n), null);
+                    return null;
+                }));
+            }
+
+            for (var f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(List.of(1, 2, 3, 4), uploadManager.getUploadSession(UUID, session.getId()).getReceivedParts());
+
+        uploadManager.commitUploadSession(UUID, session.getId());
+
+        assertEquals(1, committed.size());
+        assertArrayEquals(content, committed.get(0));
+        assertThrows(NotFoundException.class, () -> uploadManager.getUploadSession(UUID, session.getId()));
+    }
+
+    @Test
+    void interruptedUploadIsResumedFromTheReceivedParts() {
+        var content = randomBytes(3000);
+        var session = create(content.length);
+
+        uploadManager.uploadPart(UUID, session.getId(), 1, part(content, session, 1), null);
+        assertThrows(BadRequestException.class,
+            () -> uploadManager.uploadPart(UUID, session.getId(), 2, new ByteArrayInputStream(content, 1024, 100), null));
+
+        // only complete parts are listed
+        var resumed = uploadManager.getUploadSession(UUID, session.getId());
+        assertEquals(List.of(1), resumed.getReceivedParts());
+        assertThrows(PreconditionFailedException.class, () -> uploadManager.commitUploadSession(UUID, session.getId()));
+
+        uploadManager.uploadPart(UUID, session.getId(), 2, part(content, session, 2), null);
+        uploadManager.uploadPart(UUID, session.getId(), 3, part(content, session, 3), null);
+        uploadManager.commitUploadSession(UUID, session.getId());
+        assertArrayEquals(content, committed.get(0));
+    }
+
+    @Test
+    void partIsCheckedAgainstItsChecksum() throws Exception {
+        var content = randomBytes(2048);
+        var session = create(content.length);
+        var first = Arrays.copyOfRange(content, 0, 1024);
+
+        assertThrows(BadRequestException.class,
+            () -> uploadManager.uploadPart(UUID, session.getId(), 1, new ByteArrayInputStream(first), "not-a-checksum"));
+        assertThrows(BadRequestException.class,
+            () -> uploadManager.uploadPart(UUID, session.getId(), 1, new ByteArrayInputStream(first), "0".repeat(64)));
+        assertTrue(uploadManager.getUploadSession(UUID, session.getId()).getReceivedParts().isEmpty());
+
+        var sha256 = sha256(first);
+        var part = uploadManager.uploadPart(UUID, session.getId(), 1, new ByteArrayInputStream(first), sha256.toUpperCase());
+        assertEquals(sha256, part.getSha256());
+        assertEquals(1024, part.getSize());
+        assertThrows(BadRequestException.class,
+            () -> uploadManager.uploadPart(UUID, session.getId(), 3, new ByteArrayInputStream(first), null));
+    }
+
+    @Test
+    void sessionBelongsToItsUser() {
+        var session = create(1024);
+
+        when(context.getAuthority()).thenReturn("other@tenant");
+        assertThrows(ForbiddenException.class, () -> uploadManager.getUploadSession(UUID, session.getId()));
+        assertThrows(ForbiddenException.class, () -> uploadManager.abortUploadSession(UUID, session.getId()));
+
+        when(context.getAuthority()).thenReturn("admin@tenant");
+        assertThrows(NotFoundException.class, () -> uploadManager.getUploadSession("other-node", session.getId()));
+        assertThrows(NotFoundException.class, () -> uploadManager.getUploadSession(UUID, "../" + session.getId()));
+
+        uploadManager.abortUploadSession(UUID, session.getId());
+        assertFalse(Files.exists(staging.resolve("uploads").resolve(session.getId())));
+    }
+
+    @Test
+    void partRacingWithTheCommitIsRejected() {
+        var content = randomBytes(1024);
+        var session = create(content.length);
+        uploadManager.uploadPart(UUID, session.getId(), 1, part(content, session, 1), null);
+
+        doAnswer(i -> {
+            assertThrows(ConflictException.class, () -> uploadManager.uploadPart(UUID, session.getId(), 1, part(content, session, 1), null));
+            assertThrows(ConflictException.class, () -> uploadManager.commitUploadSession(UUID, session.getId()));
+            Files.delete(i.<ContentStream>getArgument(1).getStagedFile());
+            return null;
+        }).when(nodeContentService).setNodeContent(eq(UUID), any(), any());
+
+        uploadManager.commitUploadSession(UUID, session.getId());
+        verify(nodeContentService).setNodeContent(eq(UUID), any(), any());
+    }
+
+    @Test
+    void failedCommitCanBeRetried() {
+        var content = randomBytes(1024);
+        var session = create(content.length);
+        uploadManager.uploadPart(UUID, session.getId(), 1, part(content, session, 1), null);
+
+        doThrow(new IllegalStateException("store unavailable"))
+            .doAnswer(i -> {
+                committed.add(Files.readAllBytes(i.<ContentStream>getArgument(1).getStagedFile()));
+                return null;
+            })
+            .when(nodeContentService).setNodeContent(eq(UUID), any(), any());
+
+        assertThrows(IllegalStateException.class, () -> uploadManager.commitUploadSession(UUID, session.getId()));
+        uploadManager.commitUploadSession(UUID, session.getId());
+        assertArrayEquals(content, committed.get(0));
+    }
+
+    @Test
+    void expiredSessionsArePurged() {
+        uploadManager.sessionTimeToLive = Duration.ofMillis(-1);
+        var expired = create(1024);
+
+        uploadManager.sessionTimeToLive = Duration.ofHours(1);
+        create(1024);
+
+        assertFalse(Files.exists(staging.resolve("uploads").resolve(expired.getId())));
+        verify(contentStoreService).discardRanges(staging.resolve("uploads").resolve(expired.getId()).resolve("data"));
+    }
+
+    @Test
+    void sessionSizeIsBounded() {
+        assertThrows(BadRequestException.class, () -> create(-1));
+        assertThrows(BadRequestException.class, () -> create(11 * 1024));
+
+        var request = new UploadSessionRequest();
+        request.setSize(1024);
+        request.setPartSize(512L);
+        assertThrows(BadRequestException.class, () -> uploadManager.createUploadSession(UUID, PROPERTY, request));
+    }
+
+    private UploadSession create(long size) {
+        var request = new UploadSessionRequest();
+        request.setSize(size);
+        request.setFileName("file.bin");
+        return uploadManager.createUploadSession(UUID, PROPERTY, request);
+    }
+
+    private static InputStream part(byte[] content, UploadSession session, int partNumber) {
+        var position = (int) ((partNumber - 1) * session.getPartSize());
+        var length = (int) Math.min(session.getPartSize(), content.length - position);
+        return new ByteArrayInputStream(content, position, length);
+    }
+
+    private static ContentStoreService.WrittenContent writeRange(Path file, long position, long length, InputStream stream) throws Exception {
+        var digest = MessageDigest.getInstance("SHA-256");
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.position(position);
+            var written = new DigestInputStream(stream, digest).readNBytes((int) length);
+            Channels.newOutputStream(channel).write(written);
+            return new ContentStoreService.WrittenContent(written.length, Map.of("SHA-256", hex(digest.digest())));
+        }
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return hex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private static String hex(byte[] bytes) {
+        var sb = new StringBuilder();
+        for (var b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] randomBytes(int size) {
+        var bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
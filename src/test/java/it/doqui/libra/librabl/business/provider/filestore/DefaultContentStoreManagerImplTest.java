@@ -0,0 +1,97 @@
+package it.doqui.libra.librabl.business.provider.filestore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultContentStoreManagerImplTest {
+
+    private static final String STORE = "store";
+    private static final String TENANT = "tenant";
+
+    @TempDir
+    Path storePath;
+
+    private DefaultContentStoreManagerImpl manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new DefaultContentStoreManagerImpl();
+        manager.contentStoreMap = Map.of(STORE, storePath.toString());
+        manager.deduplicatedStores = Optional.of(Set.of(STORE));
+        manager.digestAlgorithm = "SHA-256";
+        manager.digestAlgorithms = List.of("SHA-256");
+    }
+
+    @Test
+    void sameContentHasTheSameAddress() throws IOException {
+        var first = manager.stageStream(STORE, TENANT, stream("hello"));
+        var second = manager.stageStream(STORE, TENANT, stream("hello"));
+        var other = manager.stageStream(STORE, TENANT, stream("world"));
+
+        assertEquals(first.contentUrl(), second.contentUrl());
+        assertNotEquals(first.contentUrl(), other.contentUrl());
+        assertTrue(first.contentUrl().matches("store://cas/tenant/([0-9a-f]{2})/([0-9a-f]{2})/\\1\\2[0-9a-f]{60}\\.bin"), first.contentUrl());
+        assertEquals(5, first.size());
+    }
+
+    @Test
+    void duplicateIsStoredOnce() throws IOException {
+        var first = manager.stageStream(STORE, TENANT, stream("hello"));
+        var second = manager.stageStream(STORE, TENANT, stream("hello"));
+
+        assertTrue(manager.commitStaged(first));
+        assertFalse(manager.commitStaged(second));
+
+        // the staged copy of the duplicate is discarded
+        assertFalse(Files.exists(second.path()));
+        assertEquals("hello", Files.readString(manager.getPath(first.contentUrl())));
+    }
+
+    @Test
+    void partsWrittenOutOfOrderAreDigestedAsAWhole() throws IOException {
+        manager.digestAlgorithms = List.of("MD5");
+        var file = Files.createFile(storePath.resolve("upload"));
+
+        var part = manager.writeRange(file, 5, 5, stream("world"));
+        assertEquals(Set.of("MD5", "SHA-256"), part.digests().keySet());
+        manager.writeRange(file, 10, 1, stream("!"));
+        manager.writeRange(file, 0, 5, stream("hello"));
+
+        var staged = manager.stageFile(STORE, TENANT, file);
+        var expected = manager.stageStream(STORE, TENANT, stream("helloworld!"));
+        assertEquals(expected.contentUrl(), staged.contentUrl());
+        assertEquals(expected.digests(), staged.digests());
+        assertEquals(11, staged.size());
+    }
+
+    @Test
+    void rewrittenPartIsDigestedFromTheFile() throws IOException {
+        var file = Files.createFile(storePath.resolve("upload"));
+
+        manager.writeRange(file, 0, 5, stream("hello"));
+        manager.writeRange(file, 5, 5, stream("world"));
+        manager.writeRange(file, 0, 5, stream("HELLO"));
+
+        var written = manager.commitFile("store://2024/1/1/0/0/content.bin", file);
+        var expected = manager.stageStream(STORE, TENANT, stream("HELLOworld"));
+        assertEquals(expected.digests(), written.digests());
+        assertEquals(10, written.size());
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+package it.doqui.libra.librabl.business.provider.filestore;
+
+import it.doqui.libra.librabl.cache.CacheBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyContentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+    private ProxyContentCache cache;
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    void contentIsDownloadedOnce() throws IOException {
+        cache = newCache(0, 10);
+
+        var path = cache.getPath("remote://a", this::download);
+        assertEquals("content of remote://a", Files.readString(path));
+        assertEquals(path, cache.getPath("remote://a", this::download));
+        assertEquals(1, downloads("remote://a"));
+    }
+
+    @Test
+    void evictedFileIsDeletedAfterTheGracePeriod() throws Exception {
+        cache = newCache(0, 1);
+        cache.handoverGrace = Duration.ofMillis(300);
+
+        var a = cache.getPath("remote://a", this::download);
+        var b = cache.getPath("remote://b", this::download);
+
+        // a has been evicted, but the caller just given its path may still open it
+        assertTrue(Files.exists(a));
+        awaitTrue(() -> !Files.exists(a));
+        assertTrue(Files.exists(b));
+
+        cache.getPath("remote://a", this::download);
+        assertEquals(2, downloads("remote://a"));
+    }
+
+    @Test
+    void cacheIsBoundedByTheSizeOfItsFiles() throws Exception {
+        // each content is 21 bytes long: two fit
+        cache = newCache(50, 0);
+        cache.handoverGrace = Duration.ofMillis(10);
+
+        for (var url : List.of("remote://a", "remote://b", "remote://c", "remote://d")) {
+            cache.getPath(url, this::download);
+        }
+
+        awaitTrue(() -> binFiles().size() == 2);
+    }
+
+    @Test
+    void contentLargerThanTheCacheIsServedAsTemporaryCopy() throws Exception {
+        cache = newCache(10, 0);
+        cache.handoverGrace = Duration.ofMillis(300);
+
+        var path = cache.getPath("remote://a", this::download);
+        assertTrue(path.getFileName().toString().endsWith(".tmp"));
+        assertEquals("content of remote://a", Files.readString(path));
+        awaitTrue(() -> !Files.exists(path));
+
+        cache.getPath("remote://a", this::download);
+        assertEquals(2, downloads("remote://a"));
+    }
+
+    @Test
+    void vanishedFileIsDownloadedAgain() throws IOException {
+        cache = newCache(0, 10);
+
+        var path = cache.getPath("remote://a", this::download);
+        Files.delete(path);
+
+        var again = cache.getPath("remote://a", this::download);
+        assertTrue(Files.exists(again));
+        assertEquals(2, downloads("remote://a"));
+    }
+
+    @Test
+    void removedFileIsDeleted() throws Exception {
+        cache = newCache(0, 10);
+        cache.handoverGrace = Duration.ofMillis(10);
+
+        var path = cache.getPath("remote://a", this::download);
+        cache.remove("remote://a");
+
+        awaitTrue(() -> !Files.exists(path));
+    }
+
+    @Test
+    void cachedFilesSurviveARestart() throws IOException {
+        cache = newCache(0, 10);
+        var path = cache.getPath("remote://a", this::download);
+        cache.close();
+
+        // an interrupted download is discarded when loading
+        var part = Files.writeString(path.resolveSibling("interrupted.part"), "partial");
+
+        cache = newCache(0, 10);
+        assertEquals(path, cache.getPath("remote://a", this::download));
+        assertEquals(1, downloads("remote://a"));
+        assertFalse(Files.exists(part));
+    }
+
+    private ProxyContentCache newCache(long maximumWeight, long maximumSize) throws IOException {
+        return new ProxyContentCache(dir, CacheBuilder.newBuilder(), maximumSize, maximumWeight, Duration.ofMinutes(10));
+    }
+
+    private void download(String contentUrl, Path target) throws IOException {
+        downloads.computeIfAbsent(contentUrl, k -> new AtomicInteger()).incrementAndGet();
+        Files.writeString(target, "content of " + contentUrl, StandardCharsets.UTF_8);
+    }
+
+    private int downloads(String contentUrl) {
+        return downloads.getOrDefault(contentUrl, new AtomicInteger()).get();
+    }
+
+    private List<Path> binFiles() {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(p -> p.getFileName().toString().endsWith(".bin")).toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package it.doqui.libra.librabl.business.provider.management;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.agroal.api.AgroalDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import it.doqui.libra.librabl.business.provider.data.entities.NodeData;
+import it.doqui.libra.librabl.business.service.auth.UserContext;
+import it.doqui.libra.librabl.business.service.auth.UserContextManager;
+import it.doqui.libra.librabl.business.service.interfaces.ContentStoreService;
+import it.doqui.libra.librabl.foundation.TenantRef;
+import it.doqui.libra.librabl.views.node.ContentProperty;
+import jakarta.jms.Message;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Runs against an embedded PostgreSQL, for the row locks taken while removing the files
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RemovedNodeCleanerJobTest {
+
+    private static final String TENANT = "tenant";
+    private static final String SCHEMA = "tenant_cleaner";
+    private static EmbeddedPostgres pg;
+
+    @Mock
+    AgroalDataSource ds;
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    ContentStoreService contentStoreService;
+
+    @InjectMocks
+    RemovedNodeCleanerJob job;
+
+    @Mock
+    UserContext context;
+
+    private final Set<String> deletedFiles = ConcurrentHashMap.newKeySet();
+    private Consumer<String> afterDelete = contentRef -> {};
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        pg = EmbeddedPostgres.builder().start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        pg.close();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        execute("drop schema if exists " + SCHEMA + " cascade");
+        execute("create schema " + SCHEMA);
+        execute("""
+            create table ecm_removed_nodes (
+                id bigserial primary key, tenant varchar(100) not null, uuid varchar(50) not null,
+                wipeable boolean not null, data jsonb)
+            """);
+        execute("""
+            create table ecm_files (
+                tenant varchar(100) not null, contentref varchar(500) not null, counter integer not null,
+                primary key (tenant, contentref))
+            """);
+
+        when(context.getDbSchema()).thenReturn(SCHEMA);
+        when(context.getTenantRef()).thenReturn(TenantRef.valueOf(TENANT));
+        UserContextManager.setContext(context);
+
+        when(ds.getConnection()).thenAnswer(i -> pg.getPostgresDatabase().getConnection());
+        doAnswer(i -> {
+            deletedFiles.add(i.getArgument(0));
+            afterDelete.accept(i.getArgument(0));
+            return null;
+        }).when(contentStoreService).delete(anyString());
+
+        job.batchSize = 2;
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContextManager.removeContext();
+    }
+
+    @Test
+    void unreferencedFilesAreRemovedPageByPage() throws Exception {
+        removedNode("n1", true, "store://a", "store://b", "store://c");
+        removedNode("n2", true, "store://d", "store://e");
+        file("store://a", 1);
+        file("store://b", 1);
+        file("store://c", 2);
+        file("store://d", 1);
+        file("store://e", 1);
+
+        job.handleMessage(message("n1", "n2"));
+
+        assertEquals(Set.of("store://a", "store://b", "store://d", "store://e"), deletedFiles);
+        assertEquals(List.of("store://c=1"), files());
+        assertEquals(0, count("select count(*) from ecm_removed_nodes"));
+    }
+
+    @Test
+    void filesLockedByAnotherTransactionAreSkipped() throws Exception {
+        job.batchSize = 1;
+        removedNode("n1", true, "store://a", "store://b");
+        file("store://a", 1);
+        file("store://b", 1);
+
+        try (var conn = pg.getPostgresDatabase().getConnection()) {
+            conn.setSchema(SCHEMA);
+            conn.setAutoCommit(false);
+
+            // a concurrent upload locks the row of b while the page of a is removed
+            afterDelete = contentRef -> {
+                try (var stmt = conn.createStatement()) {
+                    stmt.execute("select counter from ecm_files where contentref = 'store://b' for update");
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+
+            // the cleaner neither waits for the row of b nor removes its file
+            job.handleMessage(message("n1"));
+            assertEquals(Set.of("store://a"), deletedFiles);
+            conn.rollback();
+        }
+
+        assertEquals(List.of("store://b=0"), files());
+    }
+
+    @Test
+    void nodesNotWipeableKeepTheirFiles() throws Exception {
+        removedNode("n1", false, "store://a");
+        file("store://a", 1);
+
+        job.handleMessage(message("n1"));
+
+        assertTrue(deletedFiles.isEmpty());
+        assertEquals(List.of("store://a=1"), files());
+        assertEquals(1, count("select count(*) from ecm_removed_nodes"));
+    }
+
+    private Message message(String... uuids) throws Exception {
+        var message = mock(Message.class);
+        when(message.getStringProperty("uuids")).thenReturn(String.join(",", uuids));
+        return message;
+    }
+
+    private void removedNode(String uuid, boolean wipeable, String... contentUrls) throws Exception {
+        var data = new NodeData();
+        for (var url : contentUrls) {
+            var cp = new ContentProperty();
+            cp.setContentUrl(url);
+            data.getContents().add(cp);
+        }
+
+        try (var conn = pg.getPostgresDatabase().getConnection();
+             var stmt = conn.prepareStatement("insert into " + SCHEMA + ".ecm_removed_nodes (tenant,uuid,wipeable,data) values (?,?,?,?::jsonb)")) {
+            stmt.setString(1, TENANT);
+            stmt.setString(2, uuid);
+            stmt.setBoolean(3, wipeable);
+            stmt.setString(4, objectMapper.writeValueAsString(data));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void file(String contentRef, int counter) throws SQLException {
+        execute(String.format("insert into %s.ecm_files (tenant,contentref,counter) values ('%s','%s',%d)", SCHEMA, TENANT, contentRef, counter));
+    }
+
+    private static List<String> files() throws SQLException {
+        try (var conn = pg.getPostgresDatabase().getConnection(); var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("select contentref,counter from " + SCHEMA + ".ecm_files order by contentref")) {
+            var result = new ArrayList<String>();
+            while (rs.next()) {
+                result.add(rs.getString(1) + "=" + rs.getInt(2));
+            }
+            return result;
+        }
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (var conn = pg.getPostgresDatabase().getConnection(); var stmt = conn.createStatement()) {
+            conn.setSchema(SCHEMA);
+            try (var rs = stmt.executeQuery(sql)) {
+                assertTrue(rs.next());
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (var conn = pg.getPostgresDatabase().getConnection(); var stmt = conn.createStatement()) {
+            conn.setSchema(SCHEMA);
+            stmt.execute(sql);
+        }
+    }
+}
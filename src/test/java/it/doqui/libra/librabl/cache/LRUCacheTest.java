@@ -0,0 +1,85 @@
+package it.doqui.libra.librabl.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LRUCacheTest {
+
+    @Test
+    void lruPolicyBuildsTheLegacyCache() {
+        var cache = CacheBuilder.newBuilder().policy(CachePolicy.LRU).build();
+        assertInstanceOf(LRUCache.class, cache);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        var removed = new ArrayList<String>();
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+            .policy(CachePolicy.LRU)
+            .maximumSize(2)
+            .removalListener((String k, String v, RemovalCause cause) -> removed.add(k + ":" + cause))
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(List.of("b:SIZE"), removed);
+        assertEquals(3, cache.stats().getHitCount());
+        assertEquals(1, cache.stats().getMissCount());
+    }
+
+    @Test
+    void expiredEntryIsLoadedAgain() throws InterruptedException {
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+            .policy(CachePolicy.LRU)
+            .expireAfterWrite(Duration.ofMillis(200))
+            .executor(Runnable::run)
+            .build();
+
+        assertEquals("1", cache.get("a", k -> "1"));
+        assertEquals("1", cache.get("a", k -> "2"));
+        Thread.sleep(300);
+        assertEquals("2", cache.get("a", k -> "2"));
+    }
+
+    @Test
+    void cleanUpRemovesExpiredEntries() throws InterruptedException {
+        var removed = new ArrayList<String>();
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+            .policy(CachePolicy.LRU)
+            .expireAfterWrite(Duration.ofMillis(20))
+            .removalListener((String k, String v, RemovalCause cause) -> removed.add(k + ":" + cause))
+            .executor(Runnable::run)
+            .build();
+
+        IntStream.range(0, 3).forEach(i -> cache.put("k" + i, "v" + i));
+        Thread.sleep(40);
+        cache.cleanUp();
+
+        assertEquals(0, cache.size());
+        assertEquals(List.of("k0:EXPIRED", "k1:EXPIRED", "k2:EXPIRED"), removed.stream().sorted().toList());
+    }
+
+    @Test
+    void weightsAreRejected() {
+        var builder = CacheBuilder.newBuilder()
+            .policy(CachePolicy.LRU)
+            .maximumWeight(100)
+            .weigher((Object k, Object v) -> 1);
+
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+}
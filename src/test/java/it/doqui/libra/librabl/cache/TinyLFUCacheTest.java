@@ -0,0 +1,106 @@
+package it.doqui.libra.librabl.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLFUCacheTest {
+
+    @Test
+    void sizeIsBounded() {
+        Cache<Integer, String> cache = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .executor(Runnable::run)
+            .build();
+
+        IntStream.range(0, 1000).forEach(i -> cache.put(i, "v" + i));
+        cache.cleanUp();
+
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+    }
+
+    @Test
+    void scanDoesNotFlushHotEntries() {
+        var cache = populateHotThenScan(CacheBuilder.newBuilder());
+        var retained = IntStream.range(0, 50).filter(i -> cache.get(i).isPresent()).count();
+        assertEquals(50, retained);
+    }
+
+    @Test
+    void scanFlushesHotEntriesWithoutAdmission() {
+        var cache = populateHotThenScan(CacheBuilder.newBuilder().withoutAdmission());
+        var retained = IntStream.range(0, 50).filter(i -> cache.get(i).isPresent()).count();
+        assertEquals(0, retained);
+    }
+
+    @Test
+    void weightIsBounded() {
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+            .maximumWeight(100)
+            .weigher((String k, String v) -> v.length())
+            .executor(Runnable::run)
+            .build();
+
+        IntStream.range(0, 50).forEach(i -> cache.put("k" + i, "0123456789"));
+        cache.cleanUp();
+
+        assertTrue(cache.stats().getEstimatedWeight() <= 100, "weight " + cache.stats().getEstimatedWeight());
+        assertTrue(cache.size() <= 10, "size " + cache.size());
+    }
+
+    @Test
+    void entryHeavierThanTheCacheIsRejected() {
+        var removed = new ArrayList<String>();
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+            .maximumWeight(10)
+            .weigher((String k, String v) -> v.length())
+            .removalListener((String k, String v, RemovalCause cause) -> removed.add(k + ":" + cause))
+            .executor(Runnable::run)
+            .build();
+
+        cache.put("small", "abc");
+        cache.put("huge", "0123456789abc");
+
+        assertTrue(cache.get("small").isPresent());
+        assertTrue(cache.get("huge").isEmpty());
+        assertEquals(List.of("huge:SIZE"), removed);
+    }
+
+    @Test
+    void removalListenerReceivesTheCause() {
+        var removed = new ArrayList<String>();
+        Cache<String, String> cache = CacheBuilder.newBuilder()
+            .maximumSize(10)
+            .removalListener((String k, String v, RemovalCause cause) -> removed.add(v + ":" + cause))
+            .executor(Runnable::run)
+            .build();
+
+        cache.put("a", "1");
+        cache.put("a", "2");
+        cache.remove("a");
+
+        assertEquals(List.of("1:REPLACED", "2:EXPLICIT"), removed);
+    }
+
+    // 50 entries read many times, then 1000 entries read once
+    private Cache<Integer, String> populateHotThenScan(CacheBuilder<Object, Object> builder) {
+        Cache<Integer, String> cache = builder
+            .maximumSize(100)
+            .executor(Runnable::run)
+            .build();
+
+        IntStream.range(0, 50).forEach(i -> cache.put(i, "hot" + i));
+        for (int round = 0; round < 10; round++) {
+            IntStream.range(0, 50).forEach(cache::get);
+            cache.cleanUp();
+        }
+
+        IntStream.range(1000, 2000).forEach(i -> cache.put(i, "cold" + i));
+        cache.cleanUp();
+        return cache;
+    }
+}
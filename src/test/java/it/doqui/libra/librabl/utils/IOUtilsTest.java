@@ -0,0 +1,71 @@
+package it.doqui.libra.librabl.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IOUtilsTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // larger than the direct buffers used for stream targets
+        content = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+        file = Files.write(dir.resolve("content.bin"), content);
+    }
+
+    @Test
+    void wholeFileIsTransferredToAStream() throws IOException {
+        var os = new ByteArrayOutputStream();
+        assertEquals(content.length, IOUtils.transfer(file, os));
+        assertArrayEquals(content, os.toByteArray());
+    }
+
+    @Test
+    void regionIsTransferredToAStream() throws IOException {
+        var os = new ByteArrayOutputStream();
+        assertEquals(1000, IOUtils.transfer(file, 1_000_000, 1000, os));
+        assertArrayEquals(Arrays.copyOfRange(content, 1_000_000, 1_001_000), os.toByteArray());
+    }
+
+    @Test
+    void regionIsTransferredToAFile() throws IOException {
+        var target = dir.resolve("target.bin");
+        try (var os = new FileOutputStream(target.toFile())) {
+            assertEquals(content.length - 10, IOUtils.transfer(file, 10, Long.MAX_VALUE, os));
+        }
+        assertArrayEquals(Arrays.copyOfRange(content, 10, content.length), Files.readAllBytes(target));
+    }
+
+    @Test
+    void regionIsBoundedByTheFileEnd() throws IOException {
+        var os = new ByteArrayOutputStream();
+        assertEquals(7, IOUtils.transfer(file, content.length - 7, 100, os));
+        assertEquals(0, IOUtils.transfer(file, content.length + 1, 100, os));
+        assertArrayEquals(Arrays.copyOfRange(content, content.length - 7, content.length), os.toByteArray());
+    }
+
+    @Test
+    void fileIsReadFully() throws IOException {
+        assertArrayEquals(content, IOUtils.readFully(file));
+        assertArrayEquals(content, IOUtils.readFully(Files.newInputStream(file)));
+        assertArrayEquals(new byte[0], IOUtils.readFully((InputStream) null));
+    }
+}